@@ -0,0 +1,45 @@
+package com.monetai.sdk
+
+import com.monetai.sdk.models.CallbackDispatch
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.asExecutor
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Delivers completion callbacks according to a [CallbackDispatch].
+ * Counts deliveries posted to the main thread, so the main-thread cost of SDK calls can be measured.
+ */
+internal class CallbackDispatcher(
+    private val mainExecutor: Executor = Dispatchers.Main.asExecutor()
+) {
+    @Volatile
+    var defaultDispatch: CallbackDispatch = CallbackDispatch.MAIN
+
+    private val mainDispatches = AtomicLong()
+
+    /**
+     * Number of callbacks posted to the main thread so far
+     */
+    val mainDispatchCount: Long get() = mainDispatches.get()
+
+    /**
+     * Run [completion] where [dispatch] (or the default, if null) says
+     */
+    fun <T> deliver(
+        dispatch: CallbackDispatch?,
+        result: T?,
+        error: Exception?,
+        completion: (T?, Exception?) -> Unit
+    ) {
+        val target = dispatch ?: defaultDispatch
+        when (target.kind) {
+            CallbackDispatch.Kind.MAIN -> {
+                mainDispatches.incrementAndGet()
+                mainExecutor.execute { completion(result, error) }
+            }
+            CallbackDispatch.Kind.IMMEDIATE -> completion(result, error)
+            CallbackDispatch.Kind.EXECUTOR -> target.executor!!.execute { completion(result, error) }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.monetai.sdk
 
+import com.monetai.sdk.network.ApiEndpoint
+
 /**
  * Monetai SDK errors
  */
@@ -7,4 +9,16 @@ sealed class MonetaiError : Exception() {
     object NotInitialized : MonetaiError() {
         override val message: String = "SDK is not initialized"
     }
+
+    class CircuitOpen(val endpoint: ApiEndpoint) : MonetaiError() {
+        override val message: String = "Monetai API is unavailable ($endpoint), request was not sent"
+    }
+
+    class Superseded(val userId: String) : MonetaiError() {
+        override val message: String = "Initialization for $userId was superseded by a reset or another user's initialize"
+    }
+
+    class RateLimited(val endpoint: ApiEndpoint, val retryAfterMs: Long) : MonetaiError() {
+        override val message: String = "Monetai API rate limit reached ($endpoint), retry after ${retryAfterMs}ms"
+    }
 } 
\ No newline at end of file
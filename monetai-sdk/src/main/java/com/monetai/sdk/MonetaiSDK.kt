@@ -2,15 +2,31 @@ package com.monetai.sdk
 
 import android.content.Context
 import android.util.Log
+import com.monetai.sdk.billing.BillingConnectionListener
+import com.monetai.sdk.billing.BillingConnectionState
 import com.monetai.sdk.billing.BillingManager
 import com.monetai.sdk.billing.ReceiptValidator
+import com.monetai.sdk.events.EventPipeline
+import com.monetai.sdk.events.EventPipelineStats
+import com.monetai.sdk.events.EventSampler
+import com.monetai.sdk.events.Impression
 import com.monetai.sdk.models.*
 import com.monetai.sdk.network.ApiClient
+import com.monetai.sdk.network.CircuitBreakerListener
+import com.monetai.sdk.network.LaneStats
+import com.monetai.sdk.network.RequestLane
 import com.monetai.sdk.network.ApiRequests
-import com.monetai.sdk.utils.DateTimeHelper
 import kotlinx.coroutines.*
-import java.util.*
-import java.util.concurrent.ConcurrentLinkedQueue
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.mapNotNull
+import kotlinx.coroutines.flow.update
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.Executor
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
 import com.jakewharton.threetenabp.AndroidThreeTen
 
 /**
@@ -21,37 +37,57 @@ class MonetaiSDK private constructor() {
 
     companion object {
         private const val TAG = "MonetaiSDK"
+        private const val DEFAULT_PARALLELISM = 4
 
         @JvmStatic
         val shared: MonetaiSDK by lazy { MonetaiSDK() }
     }
 
-    // MARK: - Pending Event Types
-    sealed class PendingEvent {
-        data class LogEvent(val options: LogEventOptions, val clientTimestamp: Long) : PendingEvent()
-        data class ViewProductItem(val params: ViewProductItemParams, val clientTimestamp: Long) : PendingEvent()
-    }
-
     // MARK: - Properties
+    // Identity and server clock, replaced as a whole by initialize and reset.
+    // Hot paths read it once and use that snapshot throughout.
+    private val session = AtomicReference<Session?>(null)
+    private val sessionIds = AtomicLong()
+    private val eventPipeline = EventPipeline()
+    private val eventSampler = EventSampler()
     @Volatile
-    private var isInitialized: Boolean = false
-
-    private var sdkKey: String? = null
-    private var userId: String? = null
-    private var organizationId: Int? = null
-    private var serverTimeOffset: Long = 0L
-    private val pendingEvents = ConcurrentLinkedQueue<PendingEvent>()
+    private var eventEncoding = EventEncoding.JSON
+    @Volatile
+    private var prewarmConnection = false
+    private val offers = MutableStateFlow<Map<Int, Offer>>(emptyMap())
+    // Offer requests still running after their caller's deadline passed
+    private val offerFetches = ConcurrentHashMap<Int, Deferred<Offer?>>()
 
     // Billing components
+    @Volatile
     private var billingManager: BillingManager? = null
+    @Volatile
     private var receiptValidator: ReceiptValidator? = null
+    @Volatile
+    private var billingConnectionListener: BillingConnectionListener? = null
 
-    // Coroutine scope for internal operations
-    private val internalScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+    // Device-only initialization steps: time zone data, Play Billing and receipt sync.
+    // Turned off by JVM tests, where those services do not exist.
+    @Volatile
+    internal var platformServicesEnabled = true
+
+    // Delivers completion callbacks; replaceable so tests can count main-thread posts
+    @Volatile
+    internal var callbackDispatcher = CallbackDispatcher()
+
+    // Coroutine scope for internal operations.
+    // Runs on a bounded view of Dispatchers.IO (or a host executor) so SDK work
+    // cannot take over the IO threads the host app needs.
+    private val rootJob = SupervisorJob()
+    @Volatile
+    private var internalScope = CoroutineScope(boundedIO(DEFAULT_PARALLELISM) + rootJob)
 
     // MARK: - Internal Properties
-    internal val currentSDKKey: String? get() = sdkKey
-    internal val currentUserId: String? get() = userId
+    internal val currentSDKKey: String? get() = session.get()?.sdkKey
+    internal val currentUserId: String? get() = session.get()?.userId
+    internal val eventStats: EventPipelineStats get() = eventPipeline.stats()
+    internal val requestLaneStats: Map<RequestLane, LaneStats> get() = ApiClient.requestScheduler.stats()
+    internal val mainThreadCallbacks: Long get() = callbackDispatcher.mainDispatchCount
 
     // MARK: - Public Methods
 
@@ -68,83 +104,122 @@ class MonetaiSDK private constructor() {
         userId: String,
         completion: ((InitializeResult?, Exception?) -> Unit)? = null
     ) {
+        initialize(context, sdkKey, userId, null, completion)
+    }
+
+    /**
+     * Initialize MonetaiSDK, delivering the result as [dispatch] says
+     * @param context Application context
+     * @param sdkKey SDK key (required)
+     * @param userId User unique ID (required)
+     * @param dispatch Callback thread, or null for the [setCallbackDispatch] default
+     * @param completion Completion callback with result or error
+     */
+    fun initialize(
+        context: Context,
+        sdkKey: String,
+        userId: String,
+        dispatch: CallbackDispatch?,
+        completion: ((InitializeResult?, Exception?) -> Unit)?
+    ) {
+        launchInitialize(context, sdkKey, userId) { result, error ->
+            if (completion != null) callbackDispatcher.deliver(dispatch, result, error, completion)
+        }
+    }
+
+    /**
+     * Initialize MonetaiSDK from a coroutine.
+     * Runs in the caller's context; cancelling the caller cancels the initialization request.
+     * @param context Application context
+     * @param sdkKey SDK key (required)
+     * @param userId User unique ID (required)
+     * @return Initialization result
+     * @throws MonetaiError.Superseded if [reset] or another user's initialize replaced this one before it completed
+     */
+    suspend fun awaitInitialize(context: Context, sdkKey: String, userId: String): InitializeResult {
+        // Validation
+        require(sdkKey.isNotEmpty()) { "SDK key cannot be empty" }
+        require(userId.isNotEmpty()) { "User ID cannot be empty" }
+
+        // Reset if already initialized with different credentials
+        resetIfUserChanged(sdkKey, userId)
+
+        // Publish the identity right away; it is completed once the server responds.
+        // Initializing the same user again keeps the current session, so events logged meanwhile stay deliverable
+        val pending = openSession(sdkKey, userId)
+
+        // Warm up DNS and the API connection while the steps below run
+        if (prewarmConnection) {
+            ApiClient.prewarm()
+        }
+
+        // Sampling rules from the last run apply until the server sends current ones
         internalScope.launch {
-            try {
-                // Validation
-                require(sdkKey.isNotEmpty()) { "SDK key cannot be empty" }
-                require(userId.isNotEmpty()) { "User ID cannot be empty" }
-
-                // Reset if already initialized with different credentials
-                if (isInitialized && (this@MonetaiSDK.sdkKey != sdkKey || this@MonetaiSDK.userId != userId)) {
-                    reset()
-                }
+            eventSampler.restore(context)
+        }
 
-                // Minimal main-thread section: AndroidThreeTen init, Billing setup
-                withContext(Dispatchers.Main) {
-                    // Initialize ThreeTenABP for timezone support
-                    AndroidThreeTen.init(context)
-
-                    // Store SDK key and user ID in memory
-                    this@MonetaiSDK.sdkKey = sdkKey
-                    this@MonetaiSDK.userId = userId
-                    // Start billing observation (BillingClient requires main thread)
-                    billingManager = BillingManager(context, sdkKey, userId, internalScope)
-                    billingManager?.startObserving()
+        if (platformServicesEnabled) {
+            // Minimal main-thread section: AndroidThreeTen init, Billing setup
+            withContext(Dispatchers.Main.immediate) {
+                // Initialize ThreeTenABP for timezone support
+                AndroidThreeTen.init(context)
+
+                // Start billing observation (BillingClient requires main thread).
+                // A manager left from an earlier initialize belongs to this user and keeps its connection
+                if (billingManager == null) {
+                    billingManager = BillingManager(context, sdkKey, userId, internalScope) { state ->
+                        billingConnectionListener?.onConnectionStateChanged(state)
+                    }.also { it.startObserving() }
                 }
+            }
+        }
+
+        // Update SDK header interceptor with app info
+        try {
+            val packageInfo = context.packageManager.getPackageInfo(context.packageName, 0)
+            ApiClient.sdkHeaderInterceptor.appVersion = packageInfo.versionName ?: ""
+            ApiClient.sdkHeaderInterceptor.packageName = context.packageName
+            ApiClient.sdkHeaderInterceptor.userId = userId
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to get package info for SDK headers", e)
+        }
 
-                // Update SDK header interceptor with app info
+        // Send receipt asynchronously in background (does not block initialization)
+        if (platformServicesEnabled) {
+            internalScope.launch {
                 try {
-                    val packageInfo = context.packageManager.getPackageInfo(context.packageName, 0)
-                    ApiClient.sdkHeaderInterceptor.appVersion = packageInfo.versionName ?: ""
-                    ApiClient.sdkHeaderInterceptor.packageName = context.packageName
-                    ApiClient.sdkHeaderInterceptor.userId = userId
+                    receiptValidator = ReceiptValidator(context, sdkKey, userId, internalScope)
+                    receiptValidator?.sendReceipt()
                 } catch (e: Exception) {
-                    Log.w(TAG, "Failed to get package info for SDK headers", e)
+                    Log.e(TAG, "Failed to send receipt", e)
                 }
+            }
+        }
 
-                // Send receipt asynchronously in background (does not block initialization)
-                launch {
-                    try {
-                        receiptValidator = ReceiptValidator(context, sdkKey, userId, internalScope)
-                        receiptValidator?.sendReceipt()
-                    } catch (e: Exception) {
-                        Log.e(TAG, "Failed to send receipt", e)
-                    }
-                }
-
-                // API initialization (IO)
-                val initResponse = ApiRequests.initialize(sdkKey = sdkKey, userId = userId)
-
-                // Calculate server time offset
-                val clientTimestamp = System.currentTimeMillis()
-                this@MonetaiSDK.serverTimeOffset = initResponse.server_timestamp - clientTimestamp
+        // API initialization
+        val initResponse = ApiRequests.initialize(sdkKey = sdkKey, userId = userId)
 
-                // Store initialization data (IO)
-                this@MonetaiSDK.organizationId = initResponse.organization_id
+        // Calculate server time offset
+        val clientTimestamp = System.currentTimeMillis()
 
-                // Initialization complete (IO)
-                isInitialized = true
+        // Initialization complete, unless reset or another user's initialize replaced this session meanwhile
+        val ready = completeSession(
+            id = pending.id,
+            organizationId = initResponse.organization_id,
+            serverTimeOffset = initResponse.server_timestamp - clientTimestamp
+        ) ?: throw MonetaiError.Superseded(userId)
 
-                // Process pending events (IO)
-                processPendingEvents()
+        eventSampler.update(context, initResponse.event_sampling)
 
-                val result = InitializeResult(
-                    organizationId = initResponse.organization_id,
-                    platform = initResponse.platform,
-                    version = initResponse.version,
-                    userId = userId
-                )
+        // Start event delivery, including events logged before initialization
+        eventPipeline.start(internalScope, ready, eventEncoding)
 
-                withContext(Dispatchers.Main) {
-                    completion?.invoke(result, null)
-                }
-            } catch (e: Exception) {
-                Log.e(TAG, "SDK initialization failed", e)
-                withContext(Dispatchers.Main) {
-                    completion?.invoke(null, e)
-                }
-            }
-        }
+        return InitializeResult(
+            organizationId = initResponse.organization_id,
+            platform = initResponse.platform,
+            version = initResponse.version,
+            userId = userId
+        )
     }
 
     /**
@@ -152,29 +227,7 @@ class MonetaiSDK private constructor() {
      * @param options Event options to log
      */
     fun logEvent(options: LogEventOptions) {
-        val sdkKey = sdkKey
-        val userId = userId
-
-        if (sdkKey == null || userId == null) {
-            pendingEvents.offer(PendingEvent.LogEvent(options, System.currentTimeMillis()))
-            return
-        }
-
-        internalScope.launch {
-            try {
-                val adjustedTimestamp = Date(options.createdAt.time + serverTimeOffset)
-                val createdAt = DateTimeHelper.formatToISO8601(adjustedTimestamp)
-                ApiRequests.createEvent(
-                    sdkKey = sdkKey,
-                    userId = userId,
-                    eventName = options.eventName,
-                    params = options.params,
-                    createdAt = createdAt
-                )
-            } catch (e: Exception) {
-                Log.e(TAG, "Event logging failed: ${options.eventName}", e)
-            }
-        }
+        record(options.eventName, options.params, options.createdAt.time)
     }
 
     /**
@@ -183,8 +236,36 @@ class MonetaiSDK private constructor() {
      * @param params Event parameters (optional)
      */
     fun logEvent(eventName: String, params: Map<String, Any>? = null) {
-        val options = LogEventOptions(eventName = eventName, params = params)
-        logEvent(options)
+        record(eventName, params, System.currentTimeMillis())
+    }
+
+    /**
+     * Log event with typed parameters
+     * @param eventName Event name
+     * @param params Event parameters; do not modify after logging
+     */
+    fun logEvent(eventName: String, params: EventParams) {
+        record(eventName, params, System.currentTimeMillis())
+    }
+
+    /**
+     * Count an event per minute instead of sending each occurrence.
+     * Every minute, one summary event with the event's name is sent, carrying the total
+     * count and the counts per combination of the given parameter values.
+     * @param eventName Event name
+     * @param paramKeys Parameters to split the counts by; other parameters are ignored
+     */
+    @JvmOverloads
+    fun setEventAggregation(eventName: String, paramKeys: List<String> = emptyList()) {
+        eventPipeline.setAggregation(eventName, paramKeys)
+    }
+
+    /**
+     * Send an event individually again after [setEventAggregation]
+     * @param eventName Event name
+     */
+    fun removeEventAggregation(eventName: String) {
+        eventPipeline.removeAggregation(eventName)
     }
 
     /**
@@ -193,132 +274,397 @@ class MonetaiSDK private constructor() {
      * @param completion Completion callback with offer or error
      */
     fun getOffer(promotionId: Int, completion: ((Offer?, Exception?) -> Unit)? = null) {
-        internalScope.launch {
-            try {
-                val sdkKey = sdkKey ?: throw MonetaiError.NotInitialized
-                val userId = userId ?: throw MonetaiError.NotInitialized
+        getOffer(promotionId, null, completion)
+    }
 
-                val offer = ApiRequests.getOffer(sdkKey = sdkKey, userId = userId, promotionId = promotionId)
+    /**
+     * Get dynamic pricing offer for a promotion, delivering the result as [dispatch] says
+     * @param promotionId Promotion ID
+     * @param dispatch Callback thread, or null for the [setCallbackDispatch] default
+     * @param completion Completion callback with offer or error
+     */
+    fun getOffer(promotionId: Int, dispatch: CallbackDispatch?, completion: ((Offer?, Exception?) -> Unit)?) {
+        launchForResult("Failed to get offer", { offer(promotionId) }) { offer, error ->
+            if (completion != null) callbackDispatcher.deliver(dispatch, offer, error, completion)
+        }
+    }
 
-                withContext(Dispatchers.Main) {
-                    completion?.invoke(offer, null)
-                }
-            } catch (e: Exception) {
-                Log.e(TAG, "Failed to get offer", e)
-                withContext(Dispatchers.Main) {
-                    completion?.invoke(null, e)
-                }
-            }
+    /**
+     * Get dynamic pricing offer for a promotion from a coroutine.
+     * Runs in the caller's context; cancelling the caller cancels the underlying request.
+     * @param promotionId Promotion ID
+     * @return Offer, or null if there is no offer for the user
+     */
+    suspend fun offer(promotionId: Int): Offer? {
+        val session = session.get() ?: throw MonetaiError.NotInitialized
+
+        val offer = ApiRequests.getOffer(sdkKey = session.sdkKey, userId = session.userId, promotionId = promotionId)
+
+        // A reset or user switch while the request was running must not leave the old user's offer cached
+        if (offer != null && this.session.get()?.id == session.id) {
+            offers.update { it + (promotionId to offer) }
         }
+        return offer
     }
 
     /**
-     * Log view product item event
-     * @param params View product item parameters
+     * Get dynamic pricing offer for a promotion, waiting at most [timeoutMs].
+     * If the server has not answered in time, the last fetched offer is returned marked as stale;
+     * the request keeps running and updates the cache and [offerUpdates] when it completes.
+     * @param promotionId Promotion ID
+     * @param timeoutMs Maximum time to wait, in milliseconds
+     * @param dispatch Callback thread, or null for the [setCallbackDispatch] default
+     * @param completion Completion callback with offer result or error
      */
-    fun logViewProductItem(params: ViewProductItemParams) {
-        val sdkKey = sdkKey
-        val userId = userId
+    @JvmOverloads
+    fun getOffer(
+        promotionId: Int,
+        timeoutMs: Long,
+        dispatch: CallbackDispatch? = null,
+        completion: (OfferResult?, Exception?) -> Unit
+    ) {
+        launchForResult("Failed to get offer", { offer(promotionId, timeoutMs) }) { result, error ->
+            callbackDispatcher.deliver(dispatch, result, error, completion)
+        }
+    }
 
-        if (sdkKey == null || userId == null) {
-            pendingEvents.offer(PendingEvent.ViewProductItem(params, System.currentTimeMillis()))
-            return
+    /**
+     * Get dynamic pricing offer for a promotion from a coroutine, waiting at most [timeoutMs].
+     * If the server has not answered in time, the last fetched offer is returned marked as stale;
+     * the request keeps running and updates the cache and [offerUpdates] when it completes.
+     * A failed request also falls back to the last fetched offer if there is one.
+     * @param promotionId Promotion ID
+     * @param timeoutMs Maximum time to wait, in milliseconds
+     * @return Fresh or stale offer result
+     */
+    suspend fun offer(promotionId: Int, timeoutMs: Long): OfferResult {
+        require(timeoutMs > 0) { "Timeout must be positive" }
+        if (session.get() == null) throw MonetaiError.NotInitialized
+
+        val fetch = fetchOffer(promotionId)
+        return try {
+            withTimeoutOrNull(timeoutMs) { OfferResult(fetch.await(), isStale = false) }
+                ?: OfferResult(offers.value[promotionId], isStale = true)
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            val cached = offers.value[promotionId] ?: throw e
+            Log.w(TAG, "Failed to refresh offer, using last fetched offer", e)
+            OfferResult(cached, isStale = true)
         }
+    }
 
-        internalScope.launch {
-            try {
-                val adjustedTimestamp = Date(System.currentTimeMillis() + serverTimeOffset)
-                val createdAt = DateTimeHelper.formatToISO8601(adjustedTimestamp)
-                ApiRequests.logViewProductItem(
-                    sdkKey = sdkKey,
-                    userId = userId,
-                    params = params,
-                    createdAt = createdAt
-                )
-            } catch (e: Exception) {
-                Log.e(TAG, "Failed to log view product item", e)
-            }
+    /**
+     * Offers for a promotion as a Flow.
+     * Emits the last fetched offer (if any) and then every offer fetched afterwards
+     * through [getOffer] or [offer]; collecting does not trigger a request by itself.
+     * @param promotionId Promotion ID
+     */
+    fun offerUpdates(promotionId: Int): Flow<Offer> {
+        return offers
+            .mapNotNull { it[promotionId] }
+            .distinctUntilChanged { old, new -> old === new }
+    }
+
+    /**
+     * Resolve offer products to Google Play product details and prices.
+     * Product details are cached, so repeated calls for the same offer do not query Google Play again.
+     * @param offer Offer to resolve
+     * @param dispatch Callback thread, or null for the [setCallbackDispatch] default
+     * @param completion Completion callback with resolved products or error
+     */
+    @JvmOverloads
+    fun getOfferProducts(
+        offer: Offer,
+        dispatch: CallbackDispatch? = null,
+        completion: (List<OfferProductDetails>?, Exception?) -> Unit
+    ) {
+        launchForResult("Failed to resolve offer products", { offerProducts(offer) }) { products, error ->
+            callbackDispatcher.deliver(dispatch, products, error, completion)
         }
     }
 
+    /**
+     * Resolve offer products to Google Play product details and prices from a coroutine
+     * @param offer Offer to resolve
+     * @return Resolved products; products unknown to Google Play are omitted
+     */
+    suspend fun offerProducts(offer: Offer): List<OfferProductDetails> {
+        val billingManager = billingManager ?: throw MonetaiError.NotInitialized
+        return billingManager.resolveOfferProducts(offer)
+    }
+
+    /**
+     * Log view product item event.
+     * For product lists, [com.monetai.sdk.events.ImpressionTracker] logs views only once items are actually seen.
+     * @param params View product item parameters
+     */
+    fun logViewProductItem(params: ViewProductItemParams) {
+        logViewProductItem(params, System.currentTimeMillis())
+    }
+
     /**
      * Reset SDK
      */
     fun reset() {
-        sdkKey = null
-        userId = null
-        organizationId = null
-        serverTimeOffset = 0L
-        isInitialized = false
-        pendingEvents.clear()
+        session.set(null)
+        eventPipeline.stop()
 
         // Stop billing observation
         billingManager?.stopObserving()
         billingManager = null
         receiptValidator = null
 
-        // Cancel internal coroutines
-        internalScope.coroutineContext.cancelChildren()
+        // Cancel internal coroutines, then clear what they may have been about to fill
+        rootJob.cancelChildren()
+        offers.value = emptyMap()
     }
 
     /**
      * Return current user ID
      */
-    fun getUserId(): String? = userId
+    fun getUserId(): String? = session.get()?.userId
 
     /**
      * Return current SDK key
      */
-    fun getSdkKey(): String? = sdkKey
+    fun getSdkKey(): String? = session.get()?.sdkKey
 
     /**
      * Return SDK initialization status
      */
-    fun getInitialized(): Boolean = isInitialized
+    fun getInitialized(): Boolean = session.get()?.isInitialized == true
+
+    /**
+     * Return current billing connection state
+     */
+    fun getBillingConnectionState(): BillingConnectionState =
+        billingManager?.connectionState ?: BillingConnectionState.DISCONNECTED
+
+    /**
+     * Set listener for billing connection state changes (called on the main thread)
+     * @param listener Listener, or null to remove it
+     */
+    fun setBillingConnectionListener(listener: BillingConnectionListener?) {
+        billingConnectionListener = listener
+    }
+
+    /**
+     * Set the maximum number of threads the SDK uses for background work.
+     * Call before initialize; work that is already running keeps its dispatcher.
+     * @param parallelism Maximum number of SDK threads (default 4)
+     */
+    fun setMaxParallelism(parallelism: Int) {
+        require(parallelism > 0) { "Parallelism must be positive" }
+        internalScope = CoroutineScope(boundedIO(parallelism) + rootJob)
+    }
+
+    /**
+     * Run SDK background work on a host-supplied executor instead of Dispatchers.IO.
+     * Call before initialize; work that is already running keeps its dispatcher.
+     * @param executor Executor to use, or null to return to the default bounded dispatcher
+     */
+    fun setExecutor(executor: Executor?) {
+        val dispatcher = executor?.asCoroutineDispatcher() ?: boundedIO(DEFAULT_PARALLELISM)
+        internalScope = CoroutineScope(dispatcher + rootJob)
+    }
+
+    /**
+     * Set listener for Monetai API circuit breaker state changes.
+     * While an endpoint's circuit is open, calls to it fail fast with MonetaiError.CircuitOpen
+     * and events are held back until it recovers.
+     * @param listener Listener, or null to remove it
+     */
+    fun setCircuitBreakerListener(listener: CircuitBreakerListener?) {
+        ApiClient.circuitBreakers.listener = listener
+    }
+
+    /**
+     * Enable hedged offer requests (disabled by default).
+     * When an offer request is slower than most recent ones, a second identical request
+     * is sent and the first answer is used. Hedges are capped at about 10% extra requests.
+     * @param enabled Whether to hedge offer requests
+     */
+    fun setOfferHedging(enabled: Boolean) {
+        ApiClient.offerHedger.enabled = enabled
+    }
+
+    /**
+     * Resolve the API host and open a connection at initialize, in parallel with the
+     * other initialization steps, so the first offer request does not pay for DNS, TCP and TLS.
+     * Disabled by default. Call before initialize.
+     * @param enabled Whether to prewarm the API connection
+     */
+    fun setConnectionPrewarming(enabled: Boolean) {
+        prewarmConnection = enabled
+    }
+
+    /**
+     * Point the SDK at another API base URL, e.g. a staging server or proxy.
+     * Call before initialize.
+     * @param baseUrl Base URL ending with "/"
+     */
+    fun setBaseUrl(baseUrl: String) {
+        ApiClient.setBaseUrl(baseUrl)
+    }
+
+    /**
+     * Set the thread completion callbacks run on when a call does not choose one.
+     * The default is [CallbackDispatch.MAIN]; background callers can use [CallbackDispatch.IMMEDIATE]
+     * or an executor to avoid waiting for a main-thread slot.
+     * @param dispatch Callback thread
+     */
+    fun setCallbackDispatch(dispatch: CallbackDispatch) {
+        callbackDispatcher.defaultDispatch = dispatch
+    }
+
+    /**
+     * Set the wire encoding for event uploads (JSON by default).
+     * Takes effect at the next initialize.
+     * @param encoding Event encoding
+     */
+    fun setEventEncoding(encoding: EventEncoding) {
+        eventEncoding = encoding
+    }
+
+    // MARK: - Internal Methods
+
+    internal fun currentSessionId(): Long = session.get()?.id ?: EventPipeline.NO_SESSION
+
+    /**
+     * Log a view product item event that happened at [timestamp] in [session]
+     */
+    internal fun logViewProductItem(params: ViewProductItemParams, timestamp: Long, session: Long = currentSessionId()) {
+        eventPipeline.logViewProductItem(session, params, timestamp)
+    }
+
+    /**
+     * Log product views collected by ImpressionTracker, to be uploaded together
+     */
+    internal fun logViewProductItems(impressions: List<Impression>) {
+        eventPipeline.logViewProductItems(impressions)
+    }
+
+    /**
+     * Launch background work on the SDK scope
+     */
+    internal fun launchInternal(block: suspend CoroutineScope.() -> Unit): Job = internalScope.launch(block = block)
+
+    /**
+     * Initialize on the SDK scope and report the outcome on the SDK thread that finished it
+     */
+    internal fun launchInitialize(
+        context: Context,
+        sdkKey: String,
+        userId: String,
+        onResult: (InitializeResult?, Exception?) -> Unit
+    ): Job {
+        // Reset before launching: reset cancels SDK coroutines, which would include this one
+        resetIfUserChanged(sdkKey, userId)
+        return launchForResult("SDK initialization failed", { awaitInitialize(context, sdkKey, userId) }, onResult)
+    }
+
+    /**
+     * Run [block] on the SDK scope and report the outcome on the SDK thread that finished it,
+     * without a hop to the main thread.
+     * [onResult] is also called if the SDK scope is cancelled (reset) before [block] completes,
+     * and is called exactly once, even if the job is cancelled while [onResult] runs.
+     */
+    internal fun <T> launchForResult(
+        errorMessage: String,
+        block: suspend () -> T,
+        onResult: (T?, Exception?) -> Unit
+    ): Job {
+        val reported = AtomicBoolean(false)
+        val report = { result: T?, error: Exception? ->
+            if (reported.compareAndSet(false, true)) onResult(result, error)
+        }
+        val job = internalScope.launch {
+            val result = try {
+                block()
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.e(TAG, errorMessage, e)
+                report(null, e)
+                return@launch
+            }
+            report(result, null)
+        }
+        job.invokeOnCompletion { cause ->
+            if (cause is CancellationException) report(null, cause)
+        }
+        return job
+    }
 
     // MARK: - Private Methods
 
-    private suspend fun processPendingEvents() {
-        val sdkKey = sdkKey ?: return
-        val userId = userId ?: return
+    /**
+     * Offer request in the SDK scope, shared by callers asking for the same promotion
+     */
+    private fun fetchOffer(promotionId: Int): Deferred<Offer?> {
+        offerFetches[promotionId]?.let { return it }
+
+        val fetch = internalScope.async(start = CoroutineStart.LAZY) { offer(promotionId) }
+        val running = offerFetches.putIfAbsent(promotionId, fetch)
+        if (running != null) {
+            fetch.cancel()
+            return running
+        }
+        fetch.invokeOnCompletion { offerFetches.remove(promotionId, fetch) }
+        fetch.start()
+        return fetch
+    }
+
+    /**
+     * Aggregate, sample and queue an event
+     * @param params Map<String, Any>, EventParams or null
+     */
+    private fun record(eventName: String, params: Any?, timestamp: Long) {
+        // Aggregated events are counted in full; sampling only applies to individual events
+        if (eventPipeline.aggregate(eventName, params, timestamp)) return
+
+        val sampleRate = eventSampler.sample(eventName)
+        if (sampleRate == EventSampler.DROP) return
+
+        eventPipeline.logEvent(currentSessionId(), eventName, params, timestamp, sampleRate)
+    }
+
+    /**
+     * Current session if it belongs to the same SDK key and user, otherwise a new pending one.
+     * Session IDs only change with the user, so events are never dropped for a re-initialize.
+     */
+    private fun openSession(sdkKey: String, userId: String): Session {
+        while (true) {
+            val current = session.get()
+            if (current != null && current.sdkKey == sdkKey && current.userId == userId) return current
 
-        val events = mutableListOf<PendingEvent>()
-        while (pendingEvents.isNotEmpty()) {
-            pendingEvents.poll()?.let { events.add(it) }
+            val opened = Session(id = sessionIds.incrementAndGet(), sdkKey = sdkKey, userId = userId)
+            if (session.compareAndSet(current, opened)) return opened
         }
+    }
 
-        if (events.isEmpty()) {
-            return
+    /**
+     * Mark session [id] as initialized
+     * @return Initialized session, or null if the session was reset or replaced meanwhile
+     */
+    private fun completeSession(id: Long, organizationId: Int, serverTimeOffset: Long): Session? {
+        while (true) {
+            val current = session.get()
+            if (current == null || current.id != id) return null
+
+            val ready = current.copy(organizationId = organizationId, serverTimeOffset = serverTimeOffset)
+            if (session.compareAndSet(current, ready)) return ready
         }
+    }
 
-        events.forEach { event ->
-            try {
-                when (event) {
-                    is PendingEvent.LogEvent -> {
-                        val adjustedTimestamp = Date(event.clientTimestamp + serverTimeOffset)
-                        val createdAt = DateTimeHelper.formatToISO8601(adjustedTimestamp)
-                        ApiRequests.createEvent(
-                            sdkKey = sdkKey,
-                            userId = userId,
-                            eventName = event.options.eventName,
-                            params = event.options.params,
-                            createdAt = createdAt
-                        )
-                    }
-                    is PendingEvent.ViewProductItem -> {
-                        val adjustedTimestamp = Date(event.clientTimestamp + serverTimeOffset)
-                        val createdAt = DateTimeHelper.formatToISO8601(adjustedTimestamp)
-                        ApiRequests.logViewProductItem(
-                            sdkKey = sdkKey,
-                            userId = userId,
-                            params = event.params,
-                            createdAt = createdAt
-                        )
-                    }
-                }
-            } catch (e: Exception) {
-                Log.e(TAG, "Failed to process pending event", e)
-            }
+    private fun resetIfUserChanged(sdkKey: String, userId: String) {
+        val current = session.get() ?: return
+        if (current.sdkKey != sdkKey || current.userId != userId) {
+            reset()
         }
     }
+
+    @OptIn(ExperimentalCoroutinesApi::class)
+    private fun boundedIO(parallelism: Int): CoroutineDispatcher = Dispatchers.IO.limitedParallelism(parallelism)
 }
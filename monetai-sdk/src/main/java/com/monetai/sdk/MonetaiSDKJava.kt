@@ -1,11 +1,19 @@
 package com.monetai.sdk
 
 import android.content.Context
+import androidx.annotation.RequiresApi
+import com.monetai.sdk.billing.BillingConnectionListener
+import com.monetai.sdk.billing.BillingConnectionState
 import com.monetai.sdk.models.*
+import com.monetai.sdk.network.CircuitBreakerListener
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
 
 /**
  * Java-compatible wrapper for MonetaiSDK
- * Provides callback-based methods for Java developers
+ * Provides callback-based methods for Java developers.
+ * Plain callbacks are delivered as set with [setCallbackDispatch] (main thread by default);
+ * the Executor overloads and the CompletableFuture methods (API 24+) skip the main thread entirely.
  */
 class MonetaiSDKJava {
 
@@ -23,6 +31,9 @@ class MonetaiSDKJava {
 
         @JvmStatic
         fun getInitialized(): Boolean = MonetaiSDK.shared.getInitialized()
+
+        @JvmStatic
+        fun getBillingConnectionState(): BillingConnectionState = MonetaiSDK.shared.getBillingConnectionState()
     }
 
     /**
@@ -38,6 +49,16 @@ class MonetaiSDKJava {
         fun onResult(offer: Offer?, error: Exception?)
     }
 
+    @FunctionalInterface
+    interface OfferResultCallback {
+        fun onResult(result: OfferResult?, error: Exception?)
+    }
+
+    @FunctionalInterface
+    interface OfferProductsCallback {
+        fun onResult(products: List<OfferProductDetails>?, error: Exception?)
+    }
+
     /**
      * Initialize MonetaiSDK (Java compatible)
      */
@@ -53,6 +74,35 @@ class MonetaiSDKJava {
         }
     }
 
+    /**
+     * Initialize MonetaiSDK, delivering the result on [executor] (Java compatible)
+     */
+    fun initialize(
+        context: Context,
+        sdkKey: String,
+        userId: String,
+        executor: Executor,
+        completion: InitializeCallback
+    ) {
+        MonetaiSDK.shared.initialize(context, sdkKey, userId, CallbackDispatch.executor(executor)) { result, error ->
+            completion.onResult(result, error)
+        }
+    }
+
+    /**
+     * Initialize MonetaiSDK as a CompletableFuture (Java compatible).
+     * The future completes on an SDK background thread; cancelling it cancels the initialization.
+     */
+    @RequiresApi(24)
+    fun initializeAsync(context: Context, sdkKey: String, userId: String): CompletableFuture<InitializeResult> {
+        val future = CompletableFuture<InitializeResult>()
+        val job = MonetaiSDK.shared.launchInitialize(context, sdkKey, userId) { result, error ->
+            future.complete(result, error)
+        }
+        future.whenComplete { _, _ -> if (future.isCancelled) job.cancel() }
+        return future
+    }
+
     /**
      * Log event (Java compatible)
      */
@@ -64,6 +114,31 @@ class MonetaiSDKJava {
         MonetaiSDK.shared.logEvent(eventName, params)
     }
 
+    /**
+     * Log event with typed parameters (Java compatible)
+     */
+    fun logEvent(eventName: String, params: EventParams) {
+        MonetaiSDK.shared.logEvent(eventName, params)
+    }
+
+    /**
+     * Count an event per minute instead of sending each occurrence (Java compatible)
+     * @param eventName Event name
+     * @param paramKeys Parameters to split the counts by
+     */
+    @JvmOverloads
+    fun setEventAggregation(eventName: String, paramKeys: List<String> = emptyList()) {
+        MonetaiSDK.shared.setEventAggregation(eventName, paramKeys)
+    }
+
+    /**
+     * Send an event individually again (Java compatible)
+     * @param eventName Event name
+     */
+    fun removeEventAggregation(eventName: String) {
+        MonetaiSDK.shared.removeEventAggregation(eventName)
+    }
+
     /**
      * Log event with options (Java compatible)
      */
@@ -82,6 +157,78 @@ class MonetaiSDKJava {
         }
     }
 
+    /**
+     * Get dynamic pricing offer with a deadline (Java compatible)
+     * @param promotionId Promotion ID
+     * @param timeoutMs Maximum time to wait, in milliseconds
+     * @param completion Callback with fresh or stale offer result, or error
+     */
+    fun getOffer(promotionId: Int, timeoutMs: Long, completion: OfferResultCallback) {
+        MonetaiSDK.shared.getOffer(promotionId, timeoutMs) { result, error ->
+            completion.onResult(result, error)
+        }
+    }
+
+    /**
+     * Get dynamic pricing offer, delivering the result on [executor] (Java compatible)
+     */
+    fun getOffer(promotionId: Int, executor: Executor, completion: OfferCallback) {
+        MonetaiSDK.shared.getOffer(promotionId, CallbackDispatch.executor(executor)) { offer, error ->
+            completion.onResult(offer, error)
+        }
+    }
+
+    /**
+     * Get dynamic pricing offer with a deadline, delivering the result on [executor] (Java compatible)
+     */
+    fun getOffer(promotionId: Int, timeoutMs: Long, executor: Executor, completion: OfferResultCallback) {
+        MonetaiSDK.shared.getOffer(promotionId, timeoutMs, CallbackDispatch.executor(executor)) { result, error ->
+            completion.onResult(result, error)
+        }
+    }
+
+    /**
+     * Get dynamic pricing offer as a CompletableFuture (Java compatible).
+     * Completes with null if there is no offer for the user.
+     */
+    @RequiresApi(24)
+    fun getOfferAsync(promotionId: Int): CompletableFuture<Offer?> =
+        future("Failed to get offer") { MonetaiSDK.shared.offer(promotionId) }
+
+    /**
+     * Get dynamic pricing offer with a deadline as a CompletableFuture (Java compatible)
+     */
+    @RequiresApi(24)
+    fun getOfferAsync(promotionId: Int, timeoutMs: Long): CompletableFuture<OfferResult> =
+        future("Failed to get offer") { MonetaiSDK.shared.offer(promotionId, timeoutMs) }
+
+    /**
+     * Resolve offer products to Google Play product details and prices (Java compatible)
+     * @param offer Offer to resolve
+     * @param completion Callback with resolved products or error
+     */
+    fun getOfferProducts(offer: Offer, completion: OfferProductsCallback) {
+        MonetaiSDK.shared.getOfferProducts(offer) { products, error ->
+            completion.onResult(products, error)
+        }
+    }
+
+    /**
+     * Resolve offer products, delivering the result on [executor] (Java compatible)
+     */
+    fun getOfferProducts(offer: Offer, executor: Executor, completion: OfferProductsCallback) {
+        MonetaiSDK.shared.getOfferProducts(offer, CallbackDispatch.executor(executor)) { products, error ->
+            completion.onResult(products, error)
+        }
+    }
+
+    /**
+     * Resolve offer products as a CompletableFuture (Java compatible)
+     */
+    @RequiresApi(24)
+    fun getOfferProductsAsync(offer: Offer): CompletableFuture<List<OfferProductDetails>> =
+        future("Failed to resolve offer products") { MonetaiSDK.shared.offerProducts(offer) }
+
     /**
      * Log view product item event (Java compatible)
      * @param params View product item parameters
@@ -90,10 +237,105 @@ class MonetaiSDKJava {
         MonetaiSDK.shared.logViewProductItem(params)
     }
 
+    /**
+     * Set billing connection state listener (Java compatible)
+     * @param listener Listener, or null to remove it
+     */
+    fun setBillingConnectionListener(listener: BillingConnectionListener?) {
+        MonetaiSDK.shared.setBillingConnectionListener(listener)
+    }
+
+    /**
+     * Set the maximum number of SDK background threads (Java compatible)
+     * @param parallelism Maximum number of SDK threads
+     */
+    fun setMaxParallelism(parallelism: Int) {
+        MonetaiSDK.shared.setMaxParallelism(parallelism)
+    }
+
+    /**
+     * Run SDK background work on a host-supplied executor (Java compatible)
+     * @param executor Executor to use, or null for the default dispatcher
+     */
+    fun setExecutor(executor: Executor?) {
+        MonetaiSDK.shared.setExecutor(executor)
+    }
+
+    /**
+     * Set Monetai API circuit breaker listener (Java compatible)
+     * @param listener Listener, or null to remove it
+     */
+    fun setCircuitBreakerListener(listener: CircuitBreakerListener?) {
+        MonetaiSDK.shared.setCircuitBreakerListener(listener)
+    }
+
+    /**
+     * Enable hedged offer requests (Java compatible)
+     * @param enabled Whether to hedge offer requests
+     */
+    fun setOfferHedging(enabled: Boolean) {
+        MonetaiSDK.shared.setOfferHedging(enabled)
+    }
+
+    /**
+     * Prewarm the API connection at initialize (Java compatible)
+     * @param enabled Whether to prewarm the API connection
+     */
+    fun setConnectionPrewarming(enabled: Boolean) {
+        MonetaiSDK.shared.setConnectionPrewarming(enabled)
+    }
+
+    /**
+     * Point the SDK at another API base URL (Java compatible)
+     * @param baseUrl Base URL ending with "/"
+     */
+    fun setBaseUrl(baseUrl: String) {
+        MonetaiSDK.shared.setBaseUrl(baseUrl)
+    }
+
+    /**
+     * Set the thread completion callbacks run on by default (Java compatible)
+     * @param dispatch Callback thread
+     */
+    fun setCallbackDispatch(dispatch: CallbackDispatch) {
+        MonetaiSDK.shared.setCallbackDispatch(dispatch)
+    }
+
+    /**
+     * Set the wire encoding for event uploads (Java compatible)
+     * @param encoding Event encoding
+     */
+    fun setEventEncoding(encoding: EventEncoding) {
+        MonetaiSDK.shared.setEventEncoding(encoding)
+    }
+
     /**
      * Reset SDK (Java compatible)
      */
     fun reset() {
         MonetaiSDK.shared.reset()
     }
+
+    /**
+     * Run [block] on the SDK scope as a future; cancelling the future cancels [block]
+     */
+    @RequiresApi(24)
+    private fun <T> future(errorMessage: String, block: suspend () -> T): CompletableFuture<T> {
+        val future = CompletableFuture<T>()
+        val job = MonetaiSDK.shared.launchForResult(errorMessage, block) { result, error ->
+            future.complete(result, error)
+        }
+        future.whenComplete { _, _ -> if (future.isCancelled) job.cancel() }
+        return future
+    }
+
+    @RequiresApi(24)
+    private fun <T> CompletableFuture<T>.complete(result: T?, error: Exception?) {
+        if (error != null) {
+            completeExceptionally(error)
+        } else {
+            @Suppress("UNCHECKED_CAST")
+            complete(result as T)
+        }
+    }
 }
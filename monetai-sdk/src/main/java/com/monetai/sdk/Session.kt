@@ -0,0 +1,18 @@
+package com.monetai.sdk
+
+/**
+ * Immutable snapshot of the SDK identity and server clock for one initialization.
+ * Published as a whole, so a reader never sees the SDK key of one session
+ * together with the user ID of another.
+ */
+internal data class Session(
+    /** Unique per user session (kept when the same user initializes again); events remember the session they were logged in */
+    val id: Long,
+    val sdkKey: String,
+    val userId: String,
+    /** Null until the initialize request completes */
+    val organizationId: Int? = null,
+    val serverTimeOffset: Long = 0L
+) {
+    val isInitialized: Boolean get() = organizationId != null
+}
@@ -0,0 +1,155 @@
+package com.monetai.sdk.billing
+
+import android.util.Log
+import com.android.billingclient.api.BillingClient
+import com.android.billingclient.api.BillingClientStateListener
+import com.android.billingclient.api.BillingResult
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.launch
+
+/**
+ * Connection state of the SDK's billing client
+ */
+enum class BillingConnectionState {
+    DISCONNECTED,
+    CONNECTING,
+    CONNECTED,
+    CLOSED
+}
+
+/**
+ * Listener for billing connection state changes
+ */
+fun interface BillingConnectionListener {
+    fun onConnectionStateChanged(state: BillingConnectionState)
+}
+
+/**
+ * Keeps a billing connection alive.
+ * Reconnects with exponential backoff after the Play service drops or setup fails,
+ * and never has more than one connection attempt in flight.
+ */
+internal class BillingConnection(
+    private val gateway: BillingGateway,
+    private val scope: CoroutineScope,
+    private val listener: BillingConnectionListener? = null,
+    private val dispatcher: CoroutineDispatcher = Dispatchers.Main,
+    private val initialBackoffMs: Long = INITIAL_BACKOFF_MS,
+    private val maxBackoffMs: Long = MAX_BACKOFF_MS
+) {
+    companion object {
+        private const val TAG = "BillingConnection"
+        private const val INITIAL_BACKOFF_MS = 1_000L
+        private const val MAX_BACKOFF_MS = 60_000L
+    }
+
+    private val lock = Any()
+
+    // Written under lock
+    private val state = MutableStateFlow(BillingConnectionState.DISCONNECTED)
+
+    // Guarded by lock
+    private var attempt = 0
+    private var generation = 0
+    private var reconnectJob: Job? = null
+
+    val currentState: BillingConnectionState
+        get() = state.value
+
+    /**
+     * Suspend until the connection is ready
+     * @throws IllegalStateException if the connection is closed while waiting
+     */
+    suspend fun awaitConnected() {
+        val reached = state.first {
+            it == BillingConnectionState.CONNECTED || it == BillingConnectionState.CLOSED
+        }
+        check(reached == BillingConnectionState.CONNECTED) { "Billing connection closed" }
+    }
+
+    /**
+     * Open the connection if it is not already open or being opened
+     */
+    fun start() {
+        val gen = synchronized(lock) {
+            if (state.value != BillingConnectionState.DISCONNECTED || reconnectJob?.isActive == true) return
+            state.value = BillingConnectionState.CONNECTING
+            ++generation
+        }
+        notifyState(BillingConnectionState.CONNECTING)
+        gateway.startConnection(AttemptListener(gen))
+    }
+
+    /**
+     * Close the connection and stop reconnecting; the connection cannot be restarted afterwards
+     */
+    fun stop() {
+        synchronized(lock) {
+            if (state.value == BillingConnectionState.CLOSED) return
+            state.value = BillingConnectionState.CLOSED
+            generation++
+            reconnectJob?.cancel()
+            reconnectJob = null
+        }
+        gateway.endConnection()
+        notifyState(BillingConnectionState.CLOSED)
+    }
+
+    private fun onSetupFinished(gen: Int, billingResult: BillingResult) {
+        if (billingResult.responseCode == BillingClient.BillingResponseCode.OK) {
+            synchronized(lock) {
+                if (gen != generation) return
+                state.value = BillingConnectionState.CONNECTED
+                attempt = 0
+            }
+            Log.d(TAG, "[Debug] Billing client connected")
+            notifyState(BillingConnectionState.CONNECTED)
+        } else {
+            Log.e(TAG, "[Error] Billing setup failed: ${billingResult.debugMessage}")
+            onConnectionLost(gen)
+        }
+    }
+
+    private fun onConnectionLost(gen: Int) {
+        val backoffMs = synchronized(lock) {
+            // Ignore callbacks from attempts that were superseded or closed
+            if (gen != generation) return
+            state.value = BillingConnectionState.DISCONNECTED
+            generation++
+            val backoff = (initialBackoffMs shl attempt.coerceAtMost(16)).coerceAtMost(maxBackoffMs)
+            attempt++
+            reconnectJob = scope.launch(dispatcher) {
+                delay(backoff)
+                synchronized(lock) { reconnectJob = null }
+                start()
+            }
+            backoff
+        }
+        Log.d(TAG, "[Debug] Billing service disconnected, reconnecting in ${backoffMs}ms")
+        notifyState(BillingConnectionState.DISCONNECTED)
+    }
+
+    private fun notifyState(newState: BillingConnectionState) {
+        try {
+            listener?.onConnectionStateChanged(newState)
+        } catch (e: Exception) {
+            Log.e(TAG, "[Error] Billing connection listener failed: ${e.message}")
+        }
+    }
+
+    private inner class AttemptListener(private val gen: Int) : BillingClientStateListener {
+        override fun onBillingSetupFinished(billingResult: BillingResult) {
+            onSetupFinished(gen, billingResult)
+        }
+
+        override fun onBillingServiceDisconnected() {
+            onConnectionLost(gen)
+        }
+    }
+}
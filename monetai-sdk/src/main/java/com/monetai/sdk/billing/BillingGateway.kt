@@ -0,0 +1,45 @@
+package com.monetai.sdk.billing
+
+import android.content.Context
+import com.android.billingclient.api.*
+
+/**
+ * Subset of the Play BillingClient used by the SDK.
+ * Connection handling only talks to this interface, so it can be driven by a fake
+ * gateway that simulates disconnects without Google Play.
+ */
+internal interface BillingGateway {
+    fun startConnection(listener: BillingClientStateListener)
+    fun endConnection()
+    fun queryProductDetails(params: QueryProductDetailsParams, listener: ProductDetailsResponseListener)
+}
+
+/**
+ * BillingGateway backed by a real BillingClient
+ */
+internal class PlayBillingGateway(
+    context: Context,
+    purchasesUpdatedListener: PurchasesUpdatedListener
+) : BillingGateway {
+
+    private val billingClient: BillingClient = BillingClient.newBuilder(context)
+        .setListener(purchasesUpdatedListener)
+        .enablePendingPurchases(
+            PendingPurchasesParams.newBuilder()
+                .enableOneTimeProducts()
+                .build()
+        )
+        .build()
+
+    override fun startConnection(listener: BillingClientStateListener) {
+        billingClient.startConnection(listener)
+    }
+
+    override fun endConnection() {
+        billingClient.endConnection()
+    }
+
+    override fun queryProductDetails(params: QueryProductDetailsParams, listener: ProductDetailsResponseListener) {
+        billingClient.queryProductDetailsAsync(params, listener)
+    }
+}
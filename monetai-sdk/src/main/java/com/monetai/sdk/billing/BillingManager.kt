@@ -3,11 +3,20 @@ package com.monetai.sdk.billing
 import android.content.Context
 import android.util.Log
 import com.android.billingclient.api.*
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.models.OfferProduct
+import com.monetai.sdk.models.OfferProductDetails
 import com.monetai.sdk.network.ApiRequests
 import com.monetai.sdk.network.PurchaseItem
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.async
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withTimeoutOrNull
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
 
 // MARK: - Receipt Validator
 /**
@@ -110,54 +119,174 @@ class ReceiptValidator(
 /**
  * Billing manager for handling in-app purchases and subscriptions
  */
-class BillingManager(
+class BillingManager internal constructor(
     private val context: Context,
     private val sdkKey: String,
     private val userId: String,
-    private val scope: CoroutineScope
-) :
-    PurchasesUpdatedListener, BillingClientStateListener {
+    private val scope: CoroutineScope,
+    private val connectionListener: BillingConnectionListener?,
+    private val gatewayFactory: (PurchasesUpdatedListener) -> BillingGateway
+) : PurchasesUpdatedListener {
+
+    constructor(
+        context: Context,
+        sdkKey: String,
+        userId: String,
+        scope: CoroutineScope,
+        connectionListener: BillingConnectionListener? = null
+    ) : this(context, sdkKey, userId, scope, connectionListener, { listener -> PlayBillingGateway(context, listener) })
 
     companion object {
         private const val TAG = "BillingManager"
+        private const val CONNECTION_TIMEOUT_MS = 10_000L
+        private val BILLING_PERIOD_REGEX = Regex("P(\\d+)([WMY])")
     }
 
-    private var billingClient: BillingClient? = null
+    private var gateway: BillingGateway? = null
+    private var connection: BillingConnection? = null
+    private val mappingQueue = TransactionMappingQueue.shared(context, scope)
+    private val productDetailsCache = ProductDetailsCache(loader = ::queryProductDetails)
+
+    /**
+     * Current billing connection state
+     */
+    val connectionState: BillingConnectionState
+        get() = connection?.currentState ?: BillingConnectionState.DISCONNECTED
 
     /**
-     * Start purchase observation
+     * Start purchase observation; a connection left from an earlier call is closed first
      */
     fun startObserving() {
-        billingClient = BillingClient.newBuilder(context)
-            .setListener(this)
-            .enablePendingPurchases(
-                PendingPurchasesParams.newBuilder()
-                    .enableOneTimeProducts()
-                    .build()
-            )
-            .build()
+        mappingQueue.start()
+        connection?.stop()
 
-        billingClient?.startConnection(this)
+        // Reconnects automatically when the Play service drops
+        val gateway = gatewayFactory(this)
+        this.gateway = gateway
+        connection = BillingConnection(
+            gateway = gateway,
+            scope = scope,
+            listener = connectionListener
+        ).also { it.start() }
     }
 
     /**
      * Stop purchase observation
      */
     fun stopObserving() {
-        billingClient?.endConnection()
-        billingClient = null
+        connection?.stop()
+        connection = null
+        gateway = null
+        productDetailsCache.clear()
     }
 
-    override fun onBillingSetupFinished(billingResult: BillingResult) {
-        if (billingResult.responseCode == BillingClient.BillingResponseCode.OK) {
-            Log.d(TAG, "[Debug] Billing client ready - waiting for new purchases")
-        } else {
-            Log.e(TAG, "[Error] Billing setup failed: ${billingResult.debugMessage}")
+    /**
+     * Resolve offer products to Google Play product details and prices.
+     * Cached details are reused; all missing products are queried in one batch.
+     * Products unknown to Google Play are omitted.
+     */
+    suspend fun resolveOfferProducts(offer: Offer): List<OfferProductDetails> {
+        val details = productDetailsCache.get(offer.products.map { productIdOf(it.sku) })
+
+        return offer.products.mapNotNull { product ->
+            val productDetails = details[productIdOf(product.sku)] ?: return@mapNotNull null
+            toOfferProductDetails(product, productDetails)
         }
     }
 
-    override fun onBillingServiceDisconnected() {
-        Log.d(TAG, "[Debug] onBillingServiceDisconnected")
+    /**
+     * Query product details of both product types for the given product IDs
+     * @throws IllegalStateException if billing is not connected in time or Google Play fails the query;
+     * nothing is cached then, so the next lookup queries again
+     */
+    private suspend fun queryProductDetails(productIds: List<String>): List<ProductDetails> {
+        val connection = connection ?: throw IllegalStateException("Billing is not observing")
+        // A timeout is a failure of this lookup, not a cancellation of the caller
+        withTimeoutOrNull(CONNECTION_TIMEOUT_MS) { connection.awaitConnected() }
+            ?: throw IllegalStateException("Billing connection not ready after ${CONNECTION_TIMEOUT_MS}ms")
+        val gateway = gateway ?: throw IllegalStateException("Billing is not observing")
+
+        // A single query cannot mix product types
+        return coroutineScope {
+            val inapp = async { queryProductDetails(gateway, productIds, BillingClient.ProductType.INAPP) }
+            val subs = async { queryProductDetails(gateway, productIds, BillingClient.ProductType.SUBS) }
+            inapp.await() + subs.await()
+        }
+    }
+
+    private suspend fun queryProductDetails(
+        gateway: BillingGateway,
+        productIds: List<String>,
+        productType: String
+    ): List<ProductDetails> {
+        val params = QueryProductDetailsParams.newBuilder()
+            .setProductList(
+                productIds.map {
+                    QueryProductDetailsParams.Product.newBuilder()
+                        .setProductId(it)
+                        .setProductType(productType)
+                        .build()
+                }
+            )
+            .build()
+
+        return suspendCancellableCoroutine { continuation ->
+            gateway.queryProductDetails(params) { billingResult, result ->
+                if (billingResult.responseCode == BillingClient.BillingResponseCode.OK) {
+                    continuation.resume(result.productDetailsList)
+                } else {
+                    // Only a successful query may record products as unknown
+                    Log.e(TAG, "[Error] Product details query failed: ${billingResult.debugMessage}")
+                    continuation.resumeWithException(
+                        IllegalStateException(
+                            "Product details query failed (${billingResult.responseCode}): ${billingResult.debugMessage}"
+                        )
+                    )
+                }
+            }
+        }
+    }
+
+    /**
+     * Offer SKUs may carry a base plan suffix ("productId:basePlanId")
+     */
+    private fun productIdOf(sku: String): String = sku.substringBefore(':')
+
+    private fun toOfferProductDetails(product: OfferProduct, details: ProductDetails): OfferProductDetails? {
+        details.oneTimePurchaseOfferDetails?.let { offer ->
+            return OfferProductDetails(
+                product = product,
+                productDetails = details,
+                price = offer.priceAmountMicros / 1_000_000.0,
+                formattedPrice = offer.formattedPrice,
+                currencyCode = offer.priceCurrencyCode
+            )
+        }
+
+        val basePlanId = product.sku.substringAfter(':', "")
+        val basePlans = details.subscriptionOfferDetails?.filter { it.offerId == null } ?: return null
+        val basePlan = basePlans.firstOrNull { it.basePlanId == basePlanId } ?: basePlans.firstOrNull() ?: return null
+        // The last phase is the recurring price; earlier phases are trials or intro prices
+        val phase = basePlan.pricingPhases.pricingPhaseList.lastOrNull() ?: return null
+
+        return OfferProductDetails(
+            product = product,
+            productDetails = details,
+            price = phase.priceAmountMicros / 1_000_000.0,
+            formattedPrice = phase.formattedPrice,
+            currencyCode = phase.priceCurrencyCode,
+            month = monthsOf(phase.billingPeriod)
+        )
+    }
+
+    private fun monthsOf(billingPeriod: String): Int? {
+        val match = BILLING_PERIOD_REGEX.matchEntire(billingPeriod) ?: return null
+        val count = match.groupValues[1].toInt()
+        return when (match.groupValues[2]) {
+            "M" -> count
+            "Y" -> count * 12
+            else -> null
+        }
     }
 
     override fun onPurchasesUpdated(billingResult: BillingResult, purchases: MutableList<Purchase>?) {
@@ -183,20 +312,13 @@ class BillingManager(
      * Send purchase mapping
      */
     private fun sendMapping(purchaseToken: String) {
-        val packageName = context.packageName
-
-        scope.launch {
-            try {
-                ApiRequests.mapTransactionToUser(
-                    purchaseToken = purchaseToken,
-                    packageName = packageName,
-                    sdkKey = sdkKey,
-                    userId = userId
-                )
-                Log.d(TAG, "[Debug] Mapping POST succeeded")
-            } catch (e: Exception) {
-                Log.e(TAG, "[Error] Mapping POST failed: ${e.message}")
-            }
-        }
+        mappingQueue.enqueue(
+            PendingMapping(
+                purchaseToken = purchaseToken,
+                packageName = context.packageName,
+                sdkKey = sdkKey,
+                userId = userId
+            )
+        )
     }
 }
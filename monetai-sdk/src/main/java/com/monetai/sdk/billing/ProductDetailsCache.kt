@@ -0,0 +1,124 @@
+package com.monetai.sdk.billing
+
+import com.android.billingclient.api.ProductDetails
+import com.monetai.sdk.utils.SdkClock
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+
+/**
+ * In-memory ProductDetails cache keyed by product ID.
+ * Entries expire after a TTL and the least recently used ones are evicted once the
+ * cache is full. Concurrent lookups share in-flight queries, and all misses of a
+ * lookup are fetched in a single batch. If the lookup that started a query is cancelled,
+ * the lookups sharing it query again instead of failing.
+ */
+internal class ProductDetailsCache(
+    private val loader: suspend (List<String>) -> List<ProductDetails>,
+    private val ttlMs: Long = DEFAULT_TTL_MS,
+    private val maxEntries: Int = DEFAULT_MAX_ENTRIES,
+    private val clock: () -> Long = { SdkClock.elapsedRealtime() }
+) {
+    companion object {
+        private const val DEFAULT_TTL_MS = 30 * 60_000L
+        private const val DEFAULT_MAX_ENTRIES = 200
+    }
+
+    // A null value records a product that Google Play does not know,
+    // so unknown IDs are not queried again on every lookup
+    private class Entry(val details: ProductDetails?, val fetchedAt: Long)
+
+    private val lock = Any()
+
+    // Guarded by lock
+    private val entries = object : LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>?): Boolean {
+            return size > maxEntries
+        }
+    }
+    // Completed with null when the lookup that started the query was cancelled
+    private val inFlight = HashMap<String, CompletableDeferred<Map<String, ProductDetails>?>>()
+
+    /**
+     * Look up product details, querying Google Play once for all missing or expired IDs
+     * @return Details for every known product ID; unknown IDs are omitted
+     */
+    suspend fun get(productIds: Collection<String>): Map<String, ProductDetails> {
+        val result = HashMap<String, ProductDetails>()
+        val toFetch = ArrayList<String>()
+        val waits = ArrayList<CompletableDeferred<Map<String, ProductDetails>?>>()
+        val batch = CompletableDeferred<Map<String, ProductDetails>?>()
+
+        synchronized(lock) {
+            val now = clock()
+            for (productId in productIds.toSet()) {
+                val entry = entries[productId]
+                if (entry != null && now - entry.fetchedAt < ttlMs) {
+                    entry.details?.let { result[productId] = it }
+                    continue
+                }
+                val pending = inFlight[productId]
+                if (pending != null) {
+                    if (pending !in waits) waits.add(pending)
+                } else {
+                    inFlight[productId] = batch
+                    toFetch.add(productId)
+                }
+            }
+        }
+
+        if (toFetch.isNotEmpty()) {
+            val fetched = try {
+                loader(toFetch).associateBy { it.productId }
+            } catch (e: CancellationException) {
+                release(toFetch)
+                batch.complete(null)
+                throw e
+            } catch (e: Throwable) {
+                release(toFetch)
+                batch.completeExceptionally(e)
+                throw e
+            }
+            synchronized(lock) {
+                val now = clock()
+                for (productId in toFetch) {
+                    entries[productId] = Entry(fetched[productId], now)
+                    inFlight.remove(productId)
+                }
+            }
+            batch.complete(fetched)
+            for (productId in toFetch) {
+                fetched[productId]?.let { result[productId] = it }
+            }
+        }
+
+        var abandoned = false
+        for (pending in waits) {
+            val fetched = pending.await()
+            if (fetched == null) {
+                abandoned = true
+                continue
+            }
+            for (productId in productIds) {
+                fetched[productId]?.let { result[productId] = it }
+            }
+        }
+        if (abandoned) {
+            result.putAll(get(productIds))
+        }
+
+        return result
+    }
+
+    private fun release(productIds: List<String>) {
+        synchronized(lock) {
+            productIds.forEach { inFlight.remove(it) }
+        }
+    }
+
+    /**
+     * Drop all cached entries
+     */
+    fun clear() {
+        synchronized(lock) { entries.clear() }
+    }
+}
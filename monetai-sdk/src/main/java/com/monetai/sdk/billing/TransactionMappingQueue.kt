@@ -0,0 +1,228 @@
+package com.monetai.sdk.billing
+
+import android.content.Context
+import android.util.Log
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import com.monetai.sdk.MonetaiError
+import com.monetai.sdk.network.ApiRequests
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import retrofit2.HttpException
+
+/**
+ * Purchase mapping waiting to be acknowledged by the server
+ */
+internal data class PendingMapping(
+    val purchaseToken: String,
+    val packageName: String,
+    val sdkKey: String,
+    val userId: String
+)
+
+/**
+ * Coalesces purchase-to-user mappings and sends them together, one request per purchase token.
+ * Mappings are deduplicated by purchase token and persisted before [enqueue] returns,
+ * so a purchase made right before the process dies is retried on the next start.
+ * Mappings the server rejects with a client error are dropped.
+ * There is one queue per process (see [shared]), so deduplication and the
+ * persisted list cover every billing manager.
+ */
+internal class TransactionMappingQueue(
+    context: Context,
+    @Volatile private var scope: CoroutineScope
+) {
+    companion object {
+        private const val TAG = "TransactionMappingQueue"
+        private const val PREFS_NAME = "com.monetai.sdk.transaction_mappings"
+        private const val KEY_PENDING = "pending"
+        private const val COALESCE_WINDOW_MS = 500L
+        private const val INITIAL_RETRY_DELAY_MS = 2_000L
+        private const val MAX_RETRY_DELAY_MS = 5 * 60_000L
+        private const val RECENTLY_SENT_CAPACITY = 64
+        private const val HTTP_TOO_MANY_REQUESTS = 429
+
+        @Volatile
+        private var instance: TransactionMappingQueue? = null
+
+        /**
+         * Process-wide queue; later work runs on the latest caller's scope,
+         * so a changed SDK executor or parallelism applies to it too
+         */
+        fun shared(context: Context, scope: CoroutineScope): TransactionMappingQueue {
+            return synchronized(this) {
+                instance?.also { it.scope = scope }
+                    ?: TransactionMappingQueue(context.applicationContext ?: context, scope).also { instance = it }
+            }
+        }
+    }
+
+    private val prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+    private val gson = Gson()
+    private val lock = Any()
+
+    // Guarded by lock
+    private val pending = LinkedHashMap<String, PendingMapping>()
+    private val recentlySent = object : LinkedHashMap<String, Unit>() {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Unit>?): Boolean {
+            return size > RECENTLY_SENT_CAPACITY
+        }
+    }
+    private var flushJob: Job? = null
+    private var retryDelayMs = INITIAL_RETRY_DELAY_MS
+    private var restored = false
+
+    /**
+     * Schedule delivery of pending mappings, including those left over from a previous process
+     */
+    fun start() {
+        scope.launch {
+            val hasPending = synchronized(lock) {
+                restoreLocked()
+                pending.isNotEmpty()
+            }
+            if (hasPending) {
+                scheduleFlush(0L)
+            }
+        }
+    }
+
+    /**
+     * Queue a purchase mapping and write it to disk before returning;
+     * duplicates of queued or recently sent tokens are ignored
+     */
+    fun enqueue(mapping: PendingMapping) {
+        synchronized(lock) {
+            restoreLocked()
+            if (pending.containsKey(mapping.purchaseToken) || recentlySent.containsKey(mapping.purchaseToken)) {
+                return
+            }
+            pending[mapping.purchaseToken] = mapping
+        }
+        persist()
+        scheduleFlush(COALESCE_WINDOW_MS)
+    }
+
+    private fun scheduleFlush(delayMs: Long) {
+        synchronized(lock) {
+            if (flushJob?.isActive == true) return
+            flushJob = scope.launch {
+                delay(delayMs)
+                flush()
+            }
+        }
+    }
+
+    private suspend fun flush() {
+        val batch = synchronized(lock) { pending.values.toList() }
+        var failed = false
+        var retryAfterMs = 0L
+
+        // The mapping endpoint takes one purchase token per request; the requests go out together
+        val errors = coroutineScope {
+            batch.map { async { deliver(it) } }.awaitAll()
+        }
+        for (error in errors.filterNotNull()) {
+            failed = true
+            if (error is MonetaiError.RateLimited) {
+                retryAfterMs = maxOf(retryAfterMs, error.retryAfterMs)
+            }
+        }
+        persist()
+
+        val hasPending = synchronized(lock) {
+            flushJob = null
+            if (failed) {
+                retryDelayMs = (retryDelayMs * 2).coerceAtMost(MAX_RETRY_DELAY_MS)
+            } else {
+                retryDelayMs = INITIAL_RETRY_DELAY_MS
+            }
+            pending.isNotEmpty()
+        }
+
+        if (hasPending) {
+            scheduleFlush(if (failed) maxOf(retryDelayMs, retryAfterMs) else COALESCE_WINDOW_MS)
+        }
+    }
+
+    /**
+     * Send one mapping; a mapping the server rejects is dropped
+     * @return Error to retry after, or null if the mapping is no longer pending
+     */
+    private suspend fun deliver(mapping: PendingMapping): Exception? {
+        try {
+            ApiRequests.mapTransactionToUser(
+                purchaseToken = mapping.purchaseToken,
+                packageName = mapping.packageName,
+                sdkKey = mapping.sdkKey,
+                userId = mapping.userId
+            )
+            complete(mapping)
+            Log.d(TAG, "[Debug] Mapping POST succeeded")
+            return null
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            if (!isRejected(e)) {
+                Log.e(TAG, "[Error] Mapping POST failed: ${e.message}")
+                return e
+            }
+            // Retrying cannot fix a request the server refuses
+            Log.e(TAG, "[Error] Mapping rejected, dropping purchase ${mapping.purchaseToken}: ${e.message}")
+            complete(mapping)
+            return null
+        }
+    }
+
+    /**
+     * Client errors other than 429 are final
+     */
+    private fun isRejected(e: Exception): Boolean {
+        return e is HttpException && e.code() in 400..499 && e.code() != HTTP_TOO_MANY_REQUESTS
+    }
+
+    private fun complete(mapping: PendingMapping) {
+        synchronized(lock) {
+            pending.remove(mapping.purchaseToken)
+            recentlySent[mapping.purchaseToken] = Unit
+        }
+    }
+
+    private fun persist() {
+        val snapshot = synchronized(lock) { pending.values.toList() }
+        // commit() rather than apply() so the mapping is on disk before the request goes out
+        prefs.edit().putString(KEY_PENDING, gson.toJson(snapshot)).commit()
+    }
+
+    /**
+     * Merge mappings persisted by a previous process, once, before the list is first written
+     */
+    private fun restoreLocked() {
+        if (restored) return
+        restored = true
+        val loaded = load()
+        for (mapping in loaded) {
+            pending.getOrPut(mapping.purchaseToken) { mapping }
+        }
+        if (loaded.isNotEmpty()) {
+            Log.d(TAG, "[Debug] Restored ${loaded.size} pending mappings")
+        }
+    }
+
+    private fun load(): List<PendingMapping> {
+        val json = prefs.getString(KEY_PENDING, null) ?: return emptyList()
+        return try {
+            val type = object : TypeToken<List<PendingMapping>>() {}.type
+            gson.fromJson<List<PendingMapping>>(json, type) ?: emptyList()
+        } catch (e: Exception) {
+            Log.e(TAG, "[Error] Failed to restore pending mappings: ${e.message}")
+            emptyList()
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.monetai.sdk.events
+
+import com.monetai.sdk.models.EventParams
+
+/**
+ * Folds events registered for aggregation into per-minute counters.
+ * Instead of one request per event, each (event name, minute) is sent as a single
+ * summary event carrying the counts per combination of the selected parameter values.
+ * Counters and their value combinations live in one window per minute and are released
+ * together when the window is flushed.
+ */
+internal class EventAggregator {
+
+    companion object {
+        const val BUCKET_MS = 60_000L
+
+        // Beyond this many distinct name/value combinations in a minute, events are logged individually
+        private const val MAX_GROUPS = 1024
+
+        // Minutes counted at once; events further in the past or future are logged individually
+        private const val MAX_WINDOWS = 4
+    }
+
+    /**
+     * Receives summary events on flush
+     */
+    fun interface Sink {
+        fun accept(eventName: String, params: Map<String, Any>, timestamp: Long)
+    }
+
+    private class Spec(val eventName: String, val paramKeys: List<String>) {
+        // Values of the event being folded; only used under lock
+        val scratch = arrayOfNulls<String>(paramKeys.size)
+    }
+
+    private class Group(val eventName: String, val paramKeys: List<String>, val values: Array<String?>, val hash: Int) {
+        var count = 0L
+    }
+
+    /**
+     * Counters of one minute: groups in first-counted order, indexed by an open-addressing
+     * table so a repeated value combination is found without allocating
+     */
+    private class Window(val bucket: Long) {
+        val groups = ArrayList<Group>()
+        private var table = arrayOfNulls<Group>(16)
+
+        fun find(spec: Spec, hash: Int): Group? {
+            val mask = table.size - 1
+            var index = hash and mask
+            while (true) {
+                val group = table[index] ?: return null
+                if (group.hash == hash && group.eventName == spec.eventName &&
+                    group.paramKeys == spec.paramKeys && group.values.contentEquals(spec.scratch)
+                ) {
+                    return group
+                }
+                index = (index + 1) and mask
+            }
+        }
+
+        fun add(group: Group) {
+            if ((groups.size + 1) * 4 > table.size * 3) grow()
+            insert(table, group)
+            groups.add(group)
+        }
+
+        private fun grow() {
+            val old = table
+            table = arrayOfNulls(old.size * 2)
+            for (group in old) {
+                if (group != null) insert(table, group)
+            }
+        }
+
+        private fun insert(target: Array<Group?>, group: Group) {
+            val mask = target.size - 1
+            var index = group.hash and mask
+            while (target[index] != null) {
+                index = (index + 1) and mask
+            }
+            target[index] = group
+        }
+    }
+
+    @Volatile
+    private var specs: Map<String, Spec> = emptyMap()
+
+    private val lock = Any()
+
+    // Guarded by lock
+    private val windows = ArrayList<Window>(MAX_WINDOWS)
+
+    /**
+     * Register an event for aggregation, replacing any earlier registration
+     * @param paramKeys Parameters whose values split the counts; other parameters are ignored
+     */
+    fun register(eventName: String, paramKeys: List<String>) {
+        synchronized(lock) {
+            specs = specs + (eventName to Spec(eventName, paramKeys.toList()))
+        }
+    }
+
+    fun unregister(eventName: String) {
+        synchronized(lock) {
+            specs = specs - eventName
+        }
+    }
+
+    /**
+     * Count the event if it is registered for aggregation
+     * @param params Map<String, Any>, EventParams or null
+     * @return false if the event is not aggregated and should be logged normally
+     */
+    fun fold(eventName: String, params: Any?, timestamp: Long): Boolean {
+        val specs = specs
+        if (specs.isEmpty()) return false
+        val spec = specs[eventName] ?: return false
+
+        val bucket = timestamp / BUCKET_MS
+        synchronized(lock) {
+            val window = windowFor(bucket) ?: return false
+            var hash = eventName.hashCode()
+            for (i in spec.paramKeys.indices) {
+                val value = valueOf(params, spec.paramKeys[i])?.toString() ?: ""
+                spec.scratch[i] = value
+                hash = 31 * hash + value.hashCode()
+            }
+            hash = hash xor (hash ushr 16)
+
+            val group = window.find(spec, hash) ?: run {
+                if (window.groups.size >= MAX_GROUPS) return false
+                Group(eventName, spec.paramKeys, spec.scratch.copyOf(), hash).also { window.add(it) }
+            }
+            group.count++
+        }
+        return true
+    }
+
+    /**
+     * Emit one summary event per event name and finished bucket (older than [currentTimestamp]'s)
+     */
+    fun flush(currentTimestamp: Long, sink: Sink) {
+        flushBuckets(currentTimestamp / BUCKET_MS, sink)
+    }
+
+    /**
+     * Emit summaries of every bucket, including the current one
+     */
+    fun flushAll(sink: Sink) {
+        flushBuckets(Long.MAX_VALUE, sink)
+    }
+
+    fun clear() {
+        synchronized(lock) {
+            windows.clear()
+        }
+    }
+
+    // Called under lock
+    private fun windowFor(bucket: Long): Window? {
+        for (i in windows.indices) {
+            if (windows[i].bucket == bucket) return windows[i]
+        }
+        if (windows.size >= MAX_WINDOWS) return null
+        return Window(bucket).also { windows.add(it) }
+    }
+
+    private fun flushBuckets(beforeBucket: Long, sink: Sink) {
+        val finished = synchronized(lock) {
+            val finished = windows.filter { it.bucket < beforeBucket }
+            windows.removeAll(finished)
+            finished
+        }
+
+        for (window in finished.sortedBy { it.bucket }) {
+            // Event name -> counts per group, in first-counted order per name
+            val byName = LinkedHashMap<String, MutableList<Group>>()
+            for (group in window.groups) {
+                byName.getOrPut(group.eventName) { ArrayList() }.add(group)
+            }
+
+            val bucketStart = window.bucket * BUCKET_MS
+            for ((eventName, groups) in byName) {
+                val params = LinkedHashMap<String, Any>()
+                params["aggregated"] = true
+                params["bucketStart"] = bucketStart
+                params["bucketSeconds"] = BUCKET_MS / 1000
+                params["count"] = groups.sumOf { it.count }
+                if (groups.first().paramKeys.isNotEmpty()) {
+                    params["counts"] = groups.map { group ->
+                        LinkedHashMap<String, Any>().apply {
+                            group.paramKeys.forEachIndexed { i, key -> put(key, group.values[i] ?: "") }
+                            put("count", group.count)
+                        }
+                    }
+                }
+                sink.accept(eventName, params, bucketStart)
+            }
+        }
+    }
+
+    private fun valueOf(params: Any?, key: String): Any? {
+        return when (params) {
+            is Map<*, *> -> params[key]
+            is EventParams -> params.valueOf(key)
+            else -> null
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.monetai.sdk.events
+
+import android.util.Log
+import com.monetai.sdk.MonetaiError
+import com.monetai.sdk.Session
+import com.monetai.sdk.models.EventEncoding
+import com.monetai.sdk.models.EventParams
+import com.monetai.sdk.models.ViewProductItemParams
+import com.monetai.sdk.network.ApiClient
+import com.monetai.sdk.network.ApiEndpoint
+import com.monetai.sdk.network.ApiRequests
+import com.monetai.sdk.network.EventEnvelope
+import com.monetai.sdk.utils.DateTimeHelper
+import retrofit2.HttpException
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Snapshot of event pipeline counters since process start
+ */
+internal data class EventPipelineStats(
+    val enqueued: Long,
+    val delivered: Long,
+    val failed: Long,
+    val requeued: Long,
+    val dropped: Long,
+    val buffered: Boolean
+)
+
+/**
+ * Event ingestion pipeline.
+ * logEvent and logViewProductItem only write into a preallocated ring buffer;
+ * a single worker drains it in batches of up to [BATCH_SIZE] and uploads each batch
+ * as one request per endpoint. Events logged before the SDK is initialized wait
+ * in the buffer until the worker starts.
+ * If the server has no batch endpoints (404), events are sent one request each.
+ */
+internal class EventPipeline(capacity: Int = DEFAULT_CAPACITY) {
+
+    companion object {
+        private const val TAG = "EventPipeline"
+        private const val DEFAULT_CAPACITY = 8192
+        private const val BATCH_SIZE = 64
+        private const val BATCH_LINGER_MS = 20L
+        // Batch uploads running at once; the analytics request lane admits 3
+        private const val UPLOADS_IN_FLIGHT = 3
+        // Late events of a bucket still land in it
+        private const val AGGREGATE_FLUSH_GRACE_MS = 2_000L
+
+        const val KIND_EVENT = 0
+        const val KIND_VIEW_PRODUCT_ITEM = 1
+
+        const val NO_SESSION = 0L
+    }
+
+    private val buffer = EventRingBuffer(capacity)
+    private val aggregator = EventAggregator()
+    private val wakeup = Channel<Unit>(Channel.CONFLATED)
+    private val delivered = AtomicLong()
+    private val failed = AtomicLong()
+    private val requeued = AtomicLong()
+    private val dropped = AtomicLong()
+
+    @Volatile
+    private var parked = false
+    @Volatile
+    private var serverTimeOffset = 0L
+    // Cleared when the server does not know the batch endpoints
+    @Volatile
+    private var batchUploads = true
+
+    private val lock = Any()
+
+    // Guarded by lock
+    private var worker: Job? = null
+    private var workerSessionId = NO_SESSION
+    private var workerEncoding: EventEncoding? = null
+    private var workerScope: CoroutineScope? = null
+    private var workerEnvelope: EventEnvelope? = null
+
+    /**
+     * Current counters; events are counted as delivered once the server accepted them
+     */
+    fun stats(): EventPipelineStats {
+        return EventPipelineStats(
+            enqueued = buffer.publishedCount,
+            delivered = delivered.get(),
+            failed = failed.get(),
+            requeued = requeued.get(),
+            dropped = dropped.get(),
+            buffered = !buffer.isEmpty()
+        )
+    }
+
+    /**
+     * Buffer an event for delivery
+     * @param session ID of the session the event was logged in, or NO_SESSION if it was
+     * logged before initialize; such events are delivered by the next session that starts
+     * @param params Map<String, Any>, EventParams or null
+     * @param sampleRate Sample rate the event was kept at, sent along so the server can reweight
+     */
+    fun logEvent(session: Long, eventName: String, params: Any?, timestamp: Long, sampleRate: Double = 1.0) {
+        publish(KIND_EVENT, eventName, params, timestamp, session, sampleRate)
+    }
+
+    /**
+     * Count the event in memory if it is registered for aggregation
+     * @return false if the event is not aggregated and should be logged normally
+     */
+    fun aggregate(eventName: String, params: Any?, timestamp: Long): Boolean {
+        return aggregator.fold(eventName, params, timestamp)
+    }
+
+    fun setAggregation(eventName: String, paramKeys: List<String>) {
+        aggregator.register(eventName, paramKeys)
+    }
+
+    fun removeAggregation(eventName: String) {
+        // Counts collected so far are still sent with the next flush
+        aggregator.unregister(eventName)
+    }
+
+    fun logViewProductItem(session: Long, params: ViewProductItemParams, timestamp: Long) {
+        publish(KIND_VIEW_PRODUCT_ITEM, null, params, timestamp, session, 1.0)
+    }
+
+    /**
+     * Buffer product views back to back with a single wakeup, so the worker drains them
+     * together and uploads them in one batch request (up to [BATCH_SIZE] records)
+     */
+    fun logViewProductItems(impressions: List<Impression>) {
+        var published = false
+        for (impression in impressions) {
+            published = offer(KIND_VIEW_PRODUCT_ITEM, null, impression.params, impression.timestamp, impression.session, 1.0) || published
+        }
+        if (published) wake()
+    }
+
+    private fun publish(kind: Int, name: String?, payload: Any?, timestamp: Long, session: Long, sampleRate: Double) {
+        if (offer(kind, name, payload, timestamp, session, sampleRate)) wake()
+    }
+
+    private fun offer(kind: Int, name: String?, payload: Any?, timestamp: Long, session: Long, sampleRate: Double): Boolean {
+        if (!buffer.offer(kind, name, payload, timestamp, session, sampleRate)) {
+            dropped.incrementAndGet()
+            return false
+        }
+        return true
+    }
+
+    private fun wake() {
+        // Only the first event after the worker goes idle pays for a wakeup
+        if (parked) {
+            parked = false
+            wakeup.trySend(Unit)
+        }
+    }
+
+    /**
+     * Start delivering events for the given session.
+     * A worker already running for the same session keeps running with the new server clock;
+     * otherwise it is replaced, and requests it had in flight are queued again.
+     */
+    fun start(scope: CoroutineScope, session: Session, encoding: EventEncoding = EventEncoding.JSON) {
+        synchronized(lock) {
+            serverTimeOffset = session.serverTimeOffset
+            if (worker?.isActive == true && workerSessionId == session.id && workerEncoding == encoding) return
+
+            worker?.cancel()
+            // Identity is serialized once per session, not once per event
+            val envelope = EventEnvelope(session.sdkKey, session.userId, ApiClient.gson, encoding)
+            workerSessionId = session.id
+            workerEncoding = encoding
+            workerScope = scope
+            workerEnvelope = envelope
+            worker = scope.launch {
+                launch {
+                    flushLoop(session.id)
+                }
+                drainLoop(envelope, session.id)
+            }
+        }
+    }
+
+    /**
+     * Stop delivering and discard buffered events.
+     * Aggregated counts, including those of the running minute, are sent for the outgoing session
+     * in a final upload that outlives the SDK scope; without a running session they are discarded.
+     */
+    fun stop() {
+        val scope: CoroutineScope?
+        val envelope: EventEnvelope?
+        val sessionId: Long
+        synchronized(lock) {
+            worker?.cancel()
+            scope = workerScope.takeIf { worker != null }
+            envelope = workerEnvelope
+            sessionId = workerSessionId
+            worker = null
+            workerSessionId = NO_SESSION
+            workerEncoding = null
+            workerScope = null
+            workerEnvelope = null
+        }
+        buffer.clear()
+
+        if (scope == null || envelope == null) {
+            aggregator.clear()
+            return
+        }
+        val summaries = ArrayList<Triple<String, Map<String, Any>, Long>>()
+        aggregator.flushAll { name, params, timestamp -> summaries.add(Triple(name, params, timestamp)) }
+        if (summaries.isEmpty()) return
+
+        val batch = EventBatch(summaries.size)
+        for ((name, params, timestamp) in summaries) {
+            batch.accept(KIND_EVENT, name, params, timestamp, sessionId, 1.0)
+        }
+        batch.select(sessionId, serverTimeOffset)
+        // Not a child of the SDK scope, which reset cancels right after this
+        scope.launch(NonCancellable) {
+            upload(envelope, batch.events, sessionId)
+        }
+    }
+
+    /**
+     * Publish aggregate summaries shortly after each minute bucket closes
+     */
+    private suspend fun flushLoop(sessionId: Long) {
+        while (true) {
+            val now = System.currentTimeMillis()
+            delay(EventAggregator.BUCKET_MS - now % EventAggregator.BUCKET_MS + AGGREGATE_FLUSH_GRACE_MS)
+            aggregator.flush(System.currentTimeMillis()) { name, params, timestamp ->
+                publish(KIND_EVENT, name, params, timestamp, sessionId, 1.0)
+            }
+        }
+    }
+
+    private suspend fun drainLoop(envelope: EventEnvelope, sessionId: Long) = coroutineScope {
+        // Batches not being uploaded; the next drain waits for one to come back
+        val free = Channel<EventBatch>(UPLOADS_IN_FLIGHT)
+        repeat(UPLOADS_IN_FLIGHT) { free.trySend(EventBatch(BATCH_SIZE)) }
+
+        while (true) {
+            // While the API circuit is open or the server asked us to back off,
+            // events wait in the buffer instead of failing
+            val holdMs = maxOf(holdMs(ApiEndpoint.EVENTS), holdMs(ApiEndpoint.VIEW_PRODUCT_ITEM))
+            if (holdMs > 0) {
+                delay(holdMs)
+                continue
+            }
+
+            val batch = free.receive()
+            buffer.drain(batch, BATCH_SIZE)
+
+            if (batch.size == 0) {
+                free.trySend(batch)
+                parked = true
+                // Re-check after parking so an event published in between is not missed
+                if (!buffer.isEmpty()) {
+                    parked = false
+                    continue
+                }
+                wakeup.receive()
+                // Let a burst fill the batch, and keep producers from paying for a wakeup per event
+                delay(BATCH_LINGER_MS)
+                continue
+            }
+
+            batch.select(sessionId, serverTimeOffset)
+            // Logged by a user that has since been reset or switched away from
+            dropped.addAndGet(batch.stale.toLong())
+
+            launch {
+                try {
+                    coroutineScope {
+                        if (batch.events.size > 0) {
+                            launch { upload(envelope, batch.events, sessionId) }
+                        }
+                        if (batch.viewProductItems.size > 0) {
+                            launch { upload(envelope, batch.viewProductItems, sessionId) }
+                        }
+                    }
+                } finally {
+                    batch.clear()
+                    free.trySend(batch)
+                }
+            }
+        }
+    }
+
+    private fun holdMs(endpoint: ApiEndpoint): Long {
+        return maxOf(
+            ApiClient.circuitBreakers[endpoint].remainingOpenMs(),
+            ApiClient.rateLimiters[endpoint].remainingPauseMs()
+        )
+    }
+
+    /**
+     * Upload the events of one endpoint as a single request
+     */
+    private suspend fun upload(envelope: EventEnvelope, selection: EventBatch.Selection, sessionId: Long) {
+        if (!batchUploads) {
+            sendEach(envelope, selection, sessionId)
+            return
+        }
+        try {
+            when (selection.kind) {
+                KIND_EVENT -> ApiRequests.createEvents(envelope, selection)
+                KIND_VIEW_PRODUCT_ITEM -> ApiRequests.logViewProductItems(envelope, selection)
+            }
+            delivered.addAndGet(selection.size.toLong())
+        } catch (e: CancellationException) {
+            requeue(selection, sessionId)
+            throw e
+        } catch (e: MonetaiError.CircuitOpen) {
+            requeue(selection, sessionId)
+        } catch (e: MonetaiError.RateLimited) {
+            requeue(selection, sessionId)
+        } catch (e: HttpException) {
+            if (e.code() == 404 || e.code() == 405) {
+                Log.d(TAG, "[Debug] Batch upload not supported by the server, sending events individually")
+                batchUploads = false
+                sendEach(envelope, selection, sessionId)
+            } else {
+                failed.addAndGet(selection.size.toLong())
+                Log.e(TAG, "Event batch upload failed (${selection.size} events)", e)
+            }
+        } catch (e: Exception) {
+            failed.addAndGet(selection.size.toLong())
+            Log.e(TAG, "Event batch upload failed (${selection.size} events)", e)
+        }
+    }
+
+    private suspend fun sendEach(envelope: EventEnvelope, selection: EventBatch.Selection, sessionId: Long) {
+        coroutineScope {
+            for (i in 0 until selection.size) {
+                val index = selection.indexAt(i)
+                val batch = selection.batch
+                launch {
+                    send(
+                        envelope,
+                        batch.kinds[index],
+                        batch.names[index],
+                        batch.payloads[index],
+                        batch.timestamps[index],
+                        batch.sampleRates[index],
+                        sessionId
+                    )
+                }
+            }
+        }
+    }
+
+    // Put the events of a batch that could not be sent back into the buffer
+    private fun requeue(selection: EventBatch.Selection, sessionId: Long) {
+        val batch = selection.batch
+        for (i in 0 until selection.size) {
+            val index = selection.indexAt(i)
+            publish(batch.kinds[index], batch.names[index], batch.payloads[index], batch.timestamps[index], sessionId, batch.sampleRates[index])
+        }
+        requeued.addAndGet(selection.size.toLong())
+    }
+
+    private suspend fun send(
+        envelope: EventEnvelope,
+        kind: Int,
+        name: String?,
+        payload: Any?,
+        timestamp: Long,
+        sampleRate: Double,
+        sessionId: Long
+    ) {
+        val createdAt = DateTimeHelper.formatToISO8601(timestamp + serverTimeOffset)
+        try {
+            when (kind) {
+                KIND_EVENT -> ApiRequests.createEvent(
+                    envelope = envelope,
+                    eventName = name!!,
+                    params = payload,
+                    createdAt = createdAt,
+                    sampleRate = sampleRate
+                )
+                KIND_VIEW_PRODUCT_ITEM -> ApiRequests.logViewProductItem(
+                    envelope = envelope,
+                    params = payload as ViewProductItemParams,
+                    createdAt = createdAt
+                )
+            }
+            delivered.incrementAndGet()
+        } catch (e: CancellationException) {
+            // Worker replaced or stopped mid-request: the next worker of this session sends it again,
+            // and a worker of another user drops it
+            requeued.incrementAndGet()
+            publish(kind, name, payload, timestamp, sessionId, sampleRate)
+            throw e
+        } catch (e: MonetaiError.CircuitOpen) {
+            // The circuit opened while this batch was in flight; keep the event for later
+            requeued.incrementAndGet()
+            publish(kind, name, payload, timestamp, sessionId, sampleRate)
+        } catch (e: MonetaiError.RateLimited) {
+            requeued.incrementAndGet()
+            publish(kind, name, payload, timestamp, sessionId, sampleRate)
+        } catch (e: Exception) {
+            failed.incrementAndGet()
+            if (kind == KIND_EVENT) {
+                Log.e(TAG, "Event logging failed: $name", e)
+            } else {
+                Log.e(TAG, "Failed to log view product item", e)
+            }
+        }
+    }
+
+    /**
+     * Reusable drain target, so the worker does not allocate per batch
+     */
+    private class EventBatch(capacity: Int) : EventRingBuffer.Sink {
+        val kinds = IntArray(capacity)
+        val names = arrayOfNulls<String>(capacity)
+        val payloads = arrayOfNulls<Any>(capacity)
+        val timestamps = LongArray(capacity)
+        val sessions = LongArray(capacity)
+        val sampleRates = DoubleArray(capacity)
+        var size = 0
+
+        // Events of the worker's session, split by endpoint
+        val events = Selection(this, KIND_EVENT, capacity)
+        val viewProductItems = Selection(this, KIND_VIEW_PRODUCT_ITEM, capacity)
+        var stale = 0
+
+        override fun accept(kind: Int, name: String?, payload: Any?, timestamp: Long, session: Long, sampleRate: Double) {
+            kinds[size] = kind
+            names[size] = name
+            payloads[size] = payload
+            timestamps[size] = timestamp
+            sessions[size] = session
+            sampleRates[size] = sampleRate
+            size++
+        }
+
+        /**
+         * Split the drained events by endpoint, skipping those of another session
+         */
+        fun select(sessionId: Long, serverTimeOffset: Long) {
+            events.clear(serverTimeOffset)
+            viewProductItems.clear(serverTimeOffset)
+            stale = 0
+            for (i in 0 until size) {
+                if (sessions[i] != NO_SESSION && sessions[i] != sessionId) {
+                    stale++
+                    continue
+                }
+                if (kinds[i] == KIND_EVENT) events.add(i) else viewProductItems.add(i)
+            }
+        }
+
+        fun clear() {
+            for (i in 0 until size) {
+                names[i] = null
+                payloads[i] = null
+            }
+            size = 0
+        }
+
+        /**
+         * The events of one kind in a batch, as the body of one upload
+         */
+        class Selection(val batch: EventBatch, val kind: Int, capacity: Int) : EventEnvelope.Batch {
+            private val indices = IntArray(capacity)
+            private var serverTimeOffset = 0L
+
+            override var size = 0
+                private set
+
+            fun clear(serverTimeOffset: Long) {
+                this.serverTimeOffset = serverTimeOffset
+                size = 0
+            }
+
+            fun add(index: Int) {
+                indices[size++] = index
+            }
+
+            fun indexAt(position: Int): Int = indices[position]
+
+            override fun eventName(index: Int): String = batch.names[indices[index]]!!
+
+            override fun params(index: Int): Any? = batch.payloads[indices[index]]
+
+            override fun viewProductItem(index: Int): ViewProductItemParams =
+                batch.payloads[indices[index]] as ViewProductItemParams
+
+            override fun createdAt(index: Int): String =
+                DateTimeHelper.formatToISO8601(batch.timestamps[indices[index]] + serverTimeOffset)
+
+            override fun sampleRate(index: Int): Double = batch.sampleRates[indices[index]]
+        }
+    }
+}
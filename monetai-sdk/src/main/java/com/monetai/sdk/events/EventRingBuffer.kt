@@ -0,0 +1,121 @@
+package com.monetai.sdk.events
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Preallocated, bounded multi-producer/single-consumer ring buffer for events.
+ * Producers claim a slot with a single CAS and never allocate or block;
+ * when the buffer is full the event is rejected instead.
+ * Each slot has a sequence number that tells whether it is free or published.
+ */
+internal class EventRingBuffer(capacity: Int) {
+
+    /**
+     * Receives drained records
+     */
+    fun interface Sink {
+        fun accept(kind: Int, name: String?, payload: Any?, timestamp: Long, session: Long, sampleRate: Double)
+    }
+
+    private val capacity: Int
+    private val mask: Long
+
+    init {
+        require(capacity > 0 && capacity and (capacity - 1) == 0) { "Capacity must be a power of two" }
+        this.capacity = capacity
+        this.mask = (capacity - 1).toLong()
+    }
+
+    private val sequences = AtomicLongArray(capacity).apply {
+        for (i in 0 until capacity) set(i, i.toLong())
+    }
+    private val kinds = IntArray(capacity)
+    private val names = arrayOfNulls<String>(capacity)
+    private val payloads = arrayOfNulls<Any>(capacity)
+    private val timestamps = LongArray(capacity)
+    private val sessions = LongArray(capacity)
+    private val sampleRates = DoubleArray(capacity)
+
+    private val tail = AtomicLong()
+
+    // Consumer side; guarded by consumerLock so clear() can run from another thread
+    private val consumerLock = Any()
+    private var head = 0L
+
+    /**
+     * Total number of records ever published; the tail doubles as the counter
+     */
+    val publishedCount: Long
+        get() = tail.get()
+
+    /**
+     * Publish a record
+     * @return false if the buffer is full
+     */
+    fun offer(kind: Int, name: String?, payload: Any?, timestamp: Long, session: Long, sampleRate: Double): Boolean {
+        while (true) {
+            val position = tail.get()
+            val index = (position and mask).toInt()
+            val diff = sequences.get(index) - position
+            if (diff == 0L) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    kinds[index] = kind
+                    names[index] = name
+                    payloads[index] = payload
+                    timestamps[index] = timestamp
+                    sessions[index] = session
+                    sampleRates[index] = sampleRate
+                    // Volatile write (not lazySet) so the consumer's parked flag is read after publishing
+                    sequences.set(index, position + 1)
+                    return true
+                }
+            } else if (diff < 0L) {
+                return false
+            }
+            // Another producer claimed the slot first; retry with the new tail
+        }
+    }
+
+    /**
+     * Hand up to [limit] published records to [sink] in order
+     * @return Number of drained records
+     */
+    fun drain(sink: Sink, limit: Int): Int {
+        synchronized(consumerLock) {
+            var count = 0
+            while (count < limit) {
+                val index = (head and mask).toInt()
+                if (sequences.get(index) != head + 1) break
+
+                sink.accept(kinds[index], names[index], payloads[index], timestamps[index], sessions[index], sampleRates[index])
+                names[index] = null
+                payloads[index] = null
+                sequences.set(index, head + capacity)
+                head++
+                count++
+            }
+            return count
+        }
+    }
+
+    /**
+     * True if no published record is waiting
+     */
+    fun isEmpty(): Boolean {
+        synchronized(consumerLock) {
+            return sequences.get((head and mask).toInt()) != head + 1
+        }
+    }
+
+    /**
+     * Discard all published records
+     */
+    fun clear() {
+        drain(DISCARD, Int.MAX_VALUE)
+    }
+
+    private companion object {
+        val DISCARD = Sink { _, _, _, _, _, _ -> }
+    }
+}
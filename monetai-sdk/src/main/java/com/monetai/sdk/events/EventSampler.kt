@@ -0,0 +1,137 @@
+package com.monetai.sdk.events
+
+import android.content.Context
+import android.util.Log
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import com.monetai.sdk.network.EventSamplingRule
+import com.monetai.sdk.utils.SdkClock
+import java.util.concurrent.ThreadLocalRandom
+
+/**
+ * Server-driven sampling and per-minute caps by event name.
+ * Applied when an event is logged, before it is queued; an event without a rule
+ * costs a single map lookup. Rules are persisted so they apply from the next app start,
+ * before initialize has completed.
+ * The rate reported with a kept event is its effective keep ratio: the sample rate times
+ * the share of events the cap let through. A kept event is sent before its own minute is over,
+ * so the cap's share is taken from the previous minute.
+ */
+internal class EventSampler(
+    private val clock: () -> Long = { SdkClock.elapsedRealtime() }
+) {
+    companion object {
+        private const val TAG = "EventSampler"
+        private const val PREFS_NAME = "com.monetai.sdk.event_sampling"
+        private const val KEY_RULES = "rules"
+        private const val WINDOW_MS = 60_000L
+
+        /** Returned by [sample] for events that should be dropped */
+        const val DROP = 0.0
+    }
+
+    private class Rule(val sampleRate: Double, val maxPerMinute: Int?) {
+        // Guarded by this rule; only used with a cap
+        var windowStart = Long.MIN_VALUE
+        var windowCount = 0
+        // Share of the previous minute's events the cap kept
+        var keptShare = 1.0
+    }
+
+    private val gson = Gson()
+    private val lock = Any()
+
+    @Volatile
+    private var rules: Map<String, Rule> = emptyMap()
+
+    // Guarded by lock; set once rules from the server arrive, so a late restore cannot override them
+    private var updated = false
+
+    /**
+     * Decide whether to keep an event
+     * @return Effective keep ratio to report with the kept event (1.0 if nothing is dropped), or DROP
+     */
+    fun sample(eventName: String): Double {
+        val rules = rules
+        if (rules.isEmpty()) return 1.0
+        val rule = rules[eventName] ?: return 1.0
+
+        if (rule.sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rule.sampleRate) return DROP
+        val maxPerMinute = rule.maxPerMinute ?: return rule.sampleRate
+        val keptShare = admit(rule, maxPerMinute)
+        return if (keptShare == DROP) DROP else rule.sampleRate * keptShare
+    }
+
+    /**
+     * Load rules persisted by a previous process
+     */
+    fun restore(context: Context) {
+        val json = prefs(context).getString(KEY_RULES, null) ?: return
+        val restored = try {
+            val type = object : TypeToken<Map<String, EventSamplingRule>>() {}.type
+            gson.fromJson<Map<String, EventSamplingRule>>(json, type) ?: return
+        } catch (e: Exception) {
+            Log.e(TAG, "[Error] Failed to restore sampling rules: ${e.message}")
+            return
+        }
+
+        synchronized(lock) {
+            if (!updated) rules = toRules(restored)
+        }
+    }
+
+    /**
+     * Apply and persist rules from the server; null or empty clears sampling
+     */
+    fun update(context: Context, serverRules: Map<String, EventSamplingRule>?) {
+        synchronized(lock) {
+            updated = true
+            rules = toRules(serverRules.orEmpty())
+        }
+        val editor = prefs(context).edit()
+        if (serverRules.isNullOrEmpty()) {
+            editor.remove(KEY_RULES)
+        } else {
+            editor.putString(KEY_RULES, gson.toJson(serverRules))
+        }
+        editor.apply()
+    }
+
+    private fun toRules(serverRules: Map<String, EventSamplingRule>): Map<String, Rule> {
+        val result = HashMap<String, Rule>(serverRules.size * 2)
+        for ((name, rule) in serverRules) {
+            val sampleRate = (rule.sample_rate ?: 1.0).coerceIn(0.0, 1.0)
+            val maxPerMinute = rule.max_per_minute?.coerceAtLeast(0)
+            if (sampleRate < 1.0 || maxPerMinute != null) {
+                result[name] = Rule(sampleRate, maxPerMinute)
+            }
+        }
+        return result
+    }
+
+    /**
+     * Count the event against the cap in fixed one-minute windows
+     * @return Share of events the cap kept in the previous minute, or DROP if this minute's cap is reached
+     */
+    private fun admit(rule: Rule, maxPerMinute: Int): Double {
+        synchronized(rule) {
+            val now = clock()
+            val start = rule.windowStart
+            if (start == Long.MIN_VALUE || now - start >= WINDOW_MS) {
+                // Only a minute that directly precedes this one says anything about the current rate
+                val previousMinute = start != Long.MIN_VALUE && now - start < 2 * WINDOW_MS
+                rule.keptShare = if (previousMinute && rule.windowCount > maxPerMinute) {
+                    maxPerMinute.toDouble() / rule.windowCount
+                } else {
+                    1.0
+                }
+                rule.windowStart = now
+                rule.windowCount = 0
+            }
+            rule.windowCount++
+            return if (rule.windowCount > maxPerMinute) DROP else rule.keptShare
+        }
+    }
+
+    private fun prefs(context: Context) = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+}
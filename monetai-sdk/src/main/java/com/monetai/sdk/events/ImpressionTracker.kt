@@ -0,0 +1,232 @@
+package com.monetai.sdk.events
+
+import android.graphics.Rect
+import android.os.SystemClock
+import android.view.View
+import android.view.ViewGroup
+import android.view.ViewTreeObserver
+import com.monetai.sdk.MonetaiSDK
+import com.monetai.sdk.models.ViewProductItemParams
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Logs product views for a list (RecyclerView, ListView, or any ViewGroup) based on viewability.
+ * A product is logged once it has been at least [minVisiblePercent]% visible for [minVisibleMs],
+ * at most once per SDK session. Products that qualify within a second of each other are handed to
+ * the event pipeline together, so they go out in the same batch upload.
+ *
+ * The main thread only reads child geometry, at most every 100 ms while the list scrolls or lays out;
+ * visibility fractions and the impression state are computed on an SDK background thread.
+ *
+ * Usage:
+ * ```
+ * val tracker = ImpressionTracker()
+ * tracker.attach(recyclerView) { view -> products.getOrNull(recyclerView.getChildAdapterPosition(view)) }
+ * // ...
+ * tracker.detach()
+ * ```
+ */
+class ImpressionTracker @JvmOverloads constructor(
+    minVisiblePercent: Int = DEFAULT_MIN_VISIBLE_PERCENT,
+    minVisibleMs: Long = DEFAULT_MIN_VISIBLE_MS
+) {
+
+    companion object {
+        const val DEFAULT_MIN_VISIBLE_PERCENT = 50
+        const val DEFAULT_MIN_VISIBLE_MS = 1_000L
+
+        private const val SAMPLE_INTERVAL_MS = 100L
+        private const val FLUSH_DELAY_MS = 1_000L
+        private const val MAX_PENDING = 20
+    }
+
+    /**
+     * Maps a child view of the list to the product it shows
+     */
+    fun interface ItemResolver {
+        /**
+         * @return Product shown by [view], or null if it is not a product item
+         */
+        fun productFor(view: View): ViewProductItemParams?
+    }
+
+    /**
+     * Child geometry captured on the main thread
+     */
+    private class Frame(
+        val products: Array<ViewProductItemParams?>,
+        val visibleAreas: LongArray,
+        val areas: LongArray,
+        val time: Long
+    )
+
+    private val viewability: ViewabilityTracker<ViewProductItemParams>
+
+    init {
+        require(minVisiblePercent in 1..100) { "Minimum visible percent must be between 1 and 100" }
+        require(minVisibleMs >= 0) { "Minimum visible time cannot be negative" }
+        viewability = ViewabilityTracker(minVisiblePercent / 100.0, minVisibleMs)
+    }
+
+    // Main thread only
+    private var resolver: ItemResolver? = null
+    private var observer: ViewTreeObserver? = null
+    private val rect = Rect()
+
+    @Volatile
+    private var list: ViewGroup? = null
+    private val sampleScheduled = AtomicBoolean(false)
+    // Latest frame not yet evaluated; frames captured meanwhile replace it
+    private val pendingFrame = AtomicReference<Frame?>()
+
+    private val lock = Any()
+
+    // Guarded by lock
+    private val pending = ArrayList<Impression>()
+    private var flushJob: Job? = null
+
+    private val scrollListener = ViewTreeObserver.OnScrollChangedListener { scheduleSample(SAMPLE_INTERVAL_MS) }
+    private val layoutListener = ViewTreeObserver.OnGlobalLayoutListener { scheduleSample(SAMPLE_INTERVAL_MS) }
+    private val sampleRunnable = Runnable {
+        sampleScheduled.set(false)
+        sample()
+    }
+
+    /**
+     * Start tracking the children of [list]; replaces any list attached before.
+     * Must be called on the main thread.
+     * @param list List whose direct children are the product items
+     * @param resolver Maps a child view to its product
+     */
+    fun attach(list: ViewGroup, resolver: ItemResolver) {
+        detach()
+        this.list = list
+        this.resolver = resolver
+        observer = list.viewTreeObserver.also {
+            it.addOnScrollChangedListener(scrollListener)
+            it.addOnGlobalLayoutListener(layoutListener)
+        }
+        scheduleSample(0L)
+    }
+
+    /**
+     * Stop tracking and send the products logged so far.
+     * Must be called on the main thread.
+     */
+    fun detach() {
+        val list = list ?: return
+        observer?.takeIf { it.isAlive }?.let {
+            it.removeOnScrollChangedListener(scrollListener)
+            it.removeOnGlobalLayoutListener(layoutListener)
+        }
+        list.removeCallbacks(sampleRunnable)
+        sampleScheduled.set(false)
+        observer = null
+        resolver = null
+        this.list = null
+        flush()
+    }
+
+    // Any thread
+    private fun scheduleSample(delayMs: Long) {
+        val list = list ?: return
+        if (sampleScheduled.compareAndSet(false, true)) {
+            list.postDelayed(sampleRunnable, delayMs)
+        }
+    }
+
+    // Main thread: only reads geometry, the math runs in evaluate()
+    private fun sample() {
+        val list = list ?: return
+        val resolver = resolver ?: return
+
+        val count = if (list.isShown) list.childCount else 0
+        val products = arrayOfNulls<ViewProductItemParams>(count)
+        val visibleAreas = LongArray(count)
+        val areas = LongArray(count)
+        for (i in 0 until count) {
+            val child = list.getChildAt(i) ?: continue
+            products[i] = resolver.productFor(child) ?: continue
+            areas[i] = child.width.toLong() * child.height
+            if (child.getGlobalVisibleRect(rect)) {
+                visibleAreas[i] = rect.width().toLong() * rect.height()
+            }
+        }
+
+        val frame = Frame(products, visibleAreas, areas, SystemClock.uptimeMillis())
+        if (pendingFrame.getAndSet(frame) == null) {
+            MonetaiSDK.shared.launchInternal { evaluate() }.invokeOnCompletion { cause ->
+                // Cancelled before evaluating (SDK reset): drop the frame so the next one starts a new
+                // evaluation, and sample again since a list at rest captures no more frames by itself
+                if (cause != null && pendingFrame.getAndSet(null) != null) {
+                    scheduleSample(SAMPLE_INTERVAL_MS)
+                }
+            }
+        }
+    }
+
+    // SDK background thread
+    private fun evaluate() {
+        val frame = pendingFrame.getAndSet(null) ?: return
+
+        val fractions = HashMap<ViewProductItemParams, Double>(frame.products.size)
+        for (i in frame.products.indices) {
+            val product = frame.products[i] ?: continue
+            val area = frame.areas[i]
+            val fraction = if (area > 0) (frame.visibleAreas[i].toDouble() / area).coerceAtMost(1.0) else 0.0
+            // The same product can appear twice; the more visible one counts
+            if (fraction > (fractions[product] ?: -1.0)) fractions[product] = fraction
+        }
+
+        val session = MonetaiSDK.shared.currentSessionId()
+        val impressions = viewability.update(fractions, frame.time, session)
+        if (impressions.isNotEmpty()) {
+            enqueue(impressions, System.currentTimeMillis(), session)
+        }
+
+        // A list at rest sends no scroll or layout callbacks; look again when the next item qualifies
+        viewability.nextDeadline()?.let { deadline ->
+            scheduleSample((deadline - SystemClock.uptimeMillis()).coerceAtLeast(0L))
+        }
+    }
+
+    private fun enqueue(products: List<ViewProductItemParams>, timestamp: Long, session: Long) {
+        val full = synchronized(lock) {
+            products.mapTo(pending) { Impression(it, timestamp, session) }
+            if (pending.size < MAX_PENDING && flushJob == null) {
+                val job = MonetaiSDK.shared.launchInternal {
+                    delay(FLUSH_DELAY_MS)
+                    flush()
+                }
+                flushJob = job
+                // A flush cancelled by an SDK reset must not block the next one from being scheduled
+                job.invokeOnCompletion {
+                    synchronized(lock) {
+                        if (flushJob === job) flushJob = null
+                    }
+                }
+            }
+            pending.size >= MAX_PENDING
+        }
+        if (full) flush()
+    }
+
+    private fun flush() {
+        val impressions = synchronized(lock) {
+            flushJob?.cancel()
+            flushJob = null
+            if (pending.isEmpty()) return
+            ArrayList(pending).also { pending.clear() }
+        }
+        MonetaiSDK.shared.logViewProductItems(impressions)
+    }
+}
+
+/**
+ * Product view logged by ImpressionTracker.
+ * Remembers its session, so a view sent after a user switch is not attributed to the new user.
+ */
+internal class Impression(val params: ViewProductItemParams, val timestamp: Long, val session: Long)
@@ -0,0 +1,72 @@
+package com.monetai.sdk.events
+
+/**
+ * Viewability state machine behind ImpressionTracker, free of Android view types.
+ * An item counts as an impression once it has stayed at least [minVisibleFraction] visible
+ * for [minVisibleMs] without interruption; each item is reported at most once per session.
+ * Thread-safe; frames older than the last evaluated one are ignored.
+ */
+internal class ViewabilityTracker<K : Any>(
+    private val minVisibleFraction: Double,
+    private val minVisibleMs: Long
+) {
+    private val lock = Any()
+
+    // Guarded by lock
+    private var session = EventPipeline.NO_SESSION
+    private var lastFrameAt = Long.MIN_VALUE
+    private val visibleSince = HashMap<K, Long>()
+    private val reported = HashSet<K>()
+
+    /**
+     * Evaluate one frame
+     * @param fractions Visible fraction (0..1) of every item currently laid out; absent items are not visible
+     * @param now Monotonic time of the frame, in milliseconds
+     * @param session SDK session; a new session forgets which items were reported
+     * @return Items that became impressions with this frame
+     */
+    fun update(fractions: Map<K, Double>, now: Long, session: Long): List<K> {
+        synchronized(lock) {
+            if (now < lastFrameAt) return emptyList()
+            lastFrameAt = now
+
+            // Items seen before the SDK was initialized belong to the first session
+            if (session != this.session) {
+                if (this.session != EventPipeline.NO_SESSION) {
+                    reported.clear()
+                    visibleSince.clear()
+                }
+                this.session = session
+            }
+
+            visibleSince.keys.retainAll(fractions.keys)
+
+            var impressions: MutableList<K>? = null
+            for ((key, fraction) in fractions) {
+                if (key in reported) continue
+                if (fraction < minVisibleFraction) {
+                    visibleSince.remove(key)
+                    continue
+                }
+                val since = visibleSince.getOrPut(key) { now }
+                if (now - since >= minVisibleMs) {
+                    visibleSince.remove(key)
+                    reported.add(key)
+                    if (impressions == null) impressions = ArrayList()
+                    impressions.add(key)
+                }
+            }
+            return impressions ?: emptyList()
+        }
+    }
+
+    /**
+     * Time at which the earliest visible item qualifies if it stays visible, or null if none is pending.
+     * Lets the caller re-sample a list that is not scrolling.
+     */
+    fun nextDeadline(): Long? {
+        synchronized(lock) {
+            return visibleSince.values.minOrNull()?.plus(minVisibleMs)
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.monetai.sdk.models
+
+import java.util.concurrent.Executor
+
+/**
+ * Thread that completion callbacks of initialize, getOffer and getOfferProducts run on
+ */
+class CallbackDispatch private constructor(
+    internal val kind: Kind,
+    internal val executor: Executor?
+) {
+    internal enum class Kind { MAIN, IMMEDIATE, EXECUTOR }
+
+    companion object {
+        /** Main thread, the default */
+        @JvmField
+        val MAIN = CallbackDispatch(Kind.MAIN, null)
+
+        /**
+         * SDK background thread that finished the call, without any thread hop.
+         * Callbacks must not block or touch views.
+         */
+        @JvmField
+        val IMMEDIATE = CallbackDispatch(Kind.IMMEDIATE, null)
+
+        /** Host-supplied executor */
+        @JvmStatic
+        fun executor(executor: Executor): CallbackDispatch = CallbackDispatch(Kind.EXECUTOR, executor)
+    }
+
+    override fun toString(): String = kind.name
+}
@@ -0,0 +1,12 @@
+package com.monetai.sdk.models
+
+/**
+ * Wire encoding for event uploads
+ */
+enum class EventEncoding {
+    /** JSON (application/json), the default */
+    JSON,
+
+    /** CBOR (application/cbor), smaller and cheaper to encode for high-volume event streams */
+    CBOR
+}
@@ -0,0 +1,136 @@
+package com.monetai.sdk.models
+
+import com.google.gson.stream.JsonWriter
+import com.monetai.sdk.network.CborWriter
+
+/**
+ * Typed event parameters.
+ * Values are kept in parallel primitive arrays and written straight to the request body,
+ * so numbers and booleans are never boxed. Putting an existing key replaces its value.
+ * Do not modify an instance after passing it to logEvent.
+ */
+class EventParams @JvmOverloads constructor(initialCapacity: Int = 8) {
+
+    private companion object {
+        const val TYPE_INT: Byte = 0
+        const val TYPE_LONG: Byte = 1
+        const val TYPE_DOUBLE: Byte = 2
+        const val TYPE_BOOLEAN: Byte = 3
+        const val TYPE_STRING: Byte = 4
+    }
+
+    private var keys = arrayOfNulls<String>(initialCapacity.coerceAtLeast(1))
+    private var types = ByteArray(keys.size)
+    // Numeric and boolean values; doubles are stored as raw long bits
+    private var numbers = LongArray(keys.size)
+    private var strings = arrayOfNulls<String>(keys.size)
+
+    /**
+     * Number of parameters
+     */
+    var size: Int = 0
+        private set
+
+    fun putInt(key: String, value: Int): EventParams = put(key, TYPE_INT, value.toLong(), null)
+
+    fun putLong(key: String, value: Long): EventParams = put(key, TYPE_LONG, value, null)
+
+    fun putDouble(key: String, value: Double): EventParams = put(key, TYPE_DOUBLE, value.toRawBits(), null)
+
+    fun putBoolean(key: String, value: Boolean): EventParams = put(key, TYPE_BOOLEAN, if (value) 1L else 0L, null)
+
+    fun putString(key: String, value: String): EventParams = put(key, TYPE_STRING, 0L, value)
+
+    private fun put(key: String, type: Byte, number: Long, string: String?): EventParams {
+        var index = indexOf(key)
+        if (index < 0) {
+            if (size == keys.size) grow()
+            index = size++
+            keys[index] = key
+        }
+        types[index] = type
+        numbers[index] = number
+        strings[index] = string
+        return this
+    }
+
+    private fun indexOf(key: String): Int {
+        for (i in 0 until size) {
+            if (keys[i] == key) return i
+        }
+        return -1
+    }
+
+    private fun grow() {
+        val newSize = keys.size * 2
+        keys = keys.copyOf(newSize)
+        types = types.copyOf(newSize)
+        numbers = numbers.copyOf(newSize)
+        strings = strings.copyOf(newSize)
+    }
+
+    /**
+     * Value of a parameter (boxed), or null if it is not set
+     */
+    internal fun valueOf(key: String): Any? {
+        val i = indexOf(key)
+        if (i < 0) return null
+        return when (types[i]) {
+            TYPE_INT -> numbers[i].toInt()
+            TYPE_LONG -> numbers[i]
+            TYPE_DOUBLE -> Double.fromBits(numbers[i])
+            TYPE_BOOLEAN -> numbers[i] != 0L
+            else -> strings[i]
+        }
+    }
+
+    /**
+     * Write parameters as a JSON object
+     */
+    internal fun writeTo(writer: JsonWriter) {
+        writer.beginObject()
+        for (i in 0 until size) {
+            writer.name(keys[i])
+            when (types[i]) {
+                TYPE_INT, TYPE_LONG -> writer.value(numbers[i])
+                TYPE_DOUBLE -> writer.value(Double.fromBits(numbers[i]))
+                TYPE_BOOLEAN -> writer.value(numbers[i] != 0L)
+                else -> writer.value(strings[i])
+            }
+        }
+        writer.endObject()
+    }
+
+    /**
+     * Write parameters as a CBOR map
+     */
+    internal fun writeTo(writer: CborWriter) {
+        writer.beginMap(size)
+        for (i in 0 until size) {
+            writer.name(keys[i]!!)
+            when (types[i]) {
+                TYPE_INT, TYPE_LONG -> writer.value(numbers[i])
+                TYPE_DOUBLE -> writer.value(Double.fromBits(numbers[i]))
+                TYPE_BOOLEAN -> writer.value(numbers[i] != 0L)
+                else -> writer.value(strings[i]!!)
+            }
+        }
+    }
+
+    /**
+     * Copy parameters into a map (boxes values)
+     */
+    fun toMap(): Map<String, Any> {
+        val map = LinkedHashMap<String, Any>(size)
+        for (i in 0 until size) {
+            map[keys[i]!!] = when (types[i]) {
+                TYPE_INT -> numbers[i].toInt()
+                TYPE_LONG -> numbers[i]
+                TYPE_DOUBLE -> Double.fromBits(numbers[i])
+                TYPE_BOOLEAN -> numbers[i] != 0L
+                else -> strings[i]!!
+            }
+        }
+        return map
+    }
+}
@@ -4,7 +4,21 @@ data class Offer(
     val agentId: Int,
     val agentName: String,
     val products: List<OfferProduct>
-)
+) {
+    // SKU index built once per offer; not part of equals/hashCode
+    private val productsBySku: Map<String, OfferProduct> = HashMap<String, OfferProduct>(products.size * 2).also { index ->
+        for (product in products) {
+            index.getOrPut(product.sku) { product }
+        }
+    }
+
+    /**
+     * Find an offer product by SKU
+     * @param sku Product SKU ("productId:basePlanId" for subscriptions)
+     * @return Offer product, or null if the offer does not contain the SKU
+     */
+    fun productForSku(sku: String): OfferProduct? = productsBySku[sku]
+}
 
 data class OfferProduct(
     val name: String,
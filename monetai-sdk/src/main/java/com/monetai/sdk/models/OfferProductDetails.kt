@@ -0,0 +1,32 @@
+package com.monetai.sdk.models
+
+import com.android.billingclient.api.ProductDetails
+
+/**
+ * Offer product joined with its Google Play product details
+ */
+data class OfferProductDetails(
+    val product: OfferProduct,
+    val productDetails: ProductDetails,
+    val price: Double,
+    val formattedPrice: String,
+    val currencyCode: String,
+    val month: Int? = null
+) {
+    /**
+     * Build view product item parameters for this product
+     * @param promotionId Promotion ID
+     * @param regularPrice Regular (non-discounted) price, defaults to this product's price
+     */
+    @JvmOverloads
+    fun toViewProductItemParams(promotionId: Int, regularPrice: Double = price): ViewProductItemParams {
+        return ViewProductItemParams(
+            productId = product.sku,
+            price = price,
+            regularPrice = regularPrice,
+            currencyCode = currencyCode,
+            promotionId = promotionId,
+            month = month
+        )
+    }
+}
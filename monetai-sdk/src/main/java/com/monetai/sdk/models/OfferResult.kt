@@ -0,0 +1,11 @@
+package com.monetai.sdk.models
+
+/**
+ * Offer returned by a getOffer call with a deadline
+ */
+data class OfferResult(
+    /** Offer, or null if there is none (or none is known yet when stale) */
+    val offer: Offer?,
+    /** True if the deadline passed and [offer] is the last offer fetched earlier */
+    val isStale: Boolean
+)
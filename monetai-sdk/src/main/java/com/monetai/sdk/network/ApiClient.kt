@@ -2,16 +2,28 @@ package com.monetai.sdk.network
 
 import com.google.gson.Gson
 import com.google.gson.GsonBuilder
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.google.gson.stream.JsonWriter
+import android.util.Log
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.Headers
 import okhttp3.Interceptor
 import okhttp3.OkHttpClient
+import okhttp3.Request
 import okhttp3.Response
 import retrofit2.Retrofit
 import retrofit2.converter.gson.GsonConverterFactory
+import java.io.IOException
 import java.util.concurrent.TimeUnit
 import okhttp3.ResponseBody
 import retrofit2.Converter
 import java.lang.reflect.Type
 import com.monetai.sdk.SDKVersion
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.models.OfferProduct
 
 /**
  * Custom converter that handles empty response bodies.
@@ -24,36 +36,202 @@ class NullOnEmptyConverterFactory : Converter.Factory() {
         annotations: Array<out Annotation>,
         retrofit: Retrofit
     ): Converter<ResponseBody, *>? {
+        // Retrofit leaves closing the body to the converter; an unclosed body keeps its connection out of the pool
         if (type == EmptyResponse::class.java) {
-            return Converter<ResponseBody, EmptyResponse> { EmptyResponse() }
+            return Converter<ResponseBody, EmptyResponse> { body ->
+                body.close()
+                EmptyResponse()
+            }
         }
         val delegate = retrofit.nextResponseBodyConverter<Any>(this, type, annotations)
         return Converter<ResponseBody, Any?> { body ->
-            if (body.contentLength() == 0L) null else delegate.convert(body)
+            if (body.contentLength() == 0L) {
+                body.close()
+                null
+            } else {
+                delegate.convert(body)
+            }
         }
     }
 }
 
 /**
- * SDK header interceptor for adding platform and version headers to all requests
+ * Reads offer responses straight into Offer in a single streaming pass,
+ * without an intermediate response model. Unknown fields are skipped.
+ * Writes the same shape, so an offer round-trips through gson.
+ */
+internal class OfferTypeAdapter : TypeAdapter<Offer>() {
+    override fun write(out: JsonWriter, value: Offer?) {
+        if (value == null) {
+            out.nullValue()
+            return
+        }
+
+        out.beginObject()
+        out.name("agentId").value(value.agentId.toLong())
+        out.name("agentName").value(value.agentName)
+        out.name("products").beginArray()
+        for (product in value.products) {
+            out.beginObject()
+            out.name("name").value(product.name)
+            out.name("sku").value(product.sku)
+            out.name("discountRate").value(product.discountRate)
+            out.name("isManual").value(product.isManual)
+            out.endObject()
+        }
+        out.endArray()
+        out.endObject()
+    }
+
+    override fun read(reader: JsonReader): Offer? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return null
+        }
+
+        var agentId = 0
+        var agentName = ""
+        var products: List<OfferProduct> = emptyList()
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            when (reader.nextName()) {
+                "agentId" -> agentId = reader.nextIntOr(agentId)
+                "agentName" -> agentName = reader.nextStringOr(agentName)
+                "products" -> products = readProducts(reader)
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        return Offer(agentId = agentId, agentName = agentName, products = products)
+    }
+
+    private fun readProducts(reader: JsonReader): List<OfferProduct> {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return emptyList()
+        }
+
+        val products = ArrayList<OfferProduct>()
+        reader.beginArray()
+        while (reader.hasNext()) {
+            var name = ""
+            var sku = ""
+            var discountRate = 0.0
+            var isManual = false
+
+            reader.beginObject()
+            while (reader.hasNext()) {
+                when (reader.nextName()) {
+                    "name" -> name = reader.nextStringOr(name)
+                    "sku" -> sku = reader.nextStringOr(sku)
+                    "discountRate" -> discountRate = if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull()
+                        discountRate
+                    } else {
+                        reader.nextDouble()
+                    }
+                    "isManual" -> isManual = if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull()
+                        isManual
+                    } else {
+                        reader.nextBoolean()
+                    }
+                    else -> reader.skipValue()
+                }
+            }
+            reader.endObject()
+
+            products.add(OfferProduct(name = name, sku = sku, discountRate = discountRate, isManual = isManual))
+        }
+        reader.endArray()
+        return products
+    }
+
+    private fun JsonReader.nextStringOr(default: String): String {
+        if (peek() == JsonToken.NULL) {
+            nextNull()
+            return default
+        }
+        return nextString()
+    }
+
+    private fun JsonReader.nextIntOr(default: Int): Int {
+        if (peek() == JsonToken.NULL) {
+            nextNull()
+            return default
+        }
+        return nextInt()
+    }
+}
+
+/**
+ * SDK header interceptor for adding platform and version headers to all requests.
+ * The header set is built once whenever app info changes, not on every request.
  */
 class SDKHeaderInterceptor : Interceptor {
     var appVersion: String = ""
+        set(value) {
+            field = value
+            rebuildHeaders()
+        }
     var packageName: String = ""
+        set(value) {
+            field = value
+            rebuildHeaders()
+        }
     var userId: String = ""
+        set(value) {
+            field = value
+            rebuildHeaders()
+        }
+
+    @Volatile
+    private var sdkHeaders: Headers = buildHeaders()
 
     override fun intercept(chain: Interceptor.Chain): Response {
-        val request = chain.request().newBuilder()
-            .addHeader("X-SDK-Platform", "android")
-            .addHeader("X-SDK-Version", SDKVersion.getVersion())
-            .addHeader("X-Device-OS", "android")
+        val original = chain.request()
+        val request = original.newBuilder()
+            .headers(original.headers().newBuilder().addAll(sdkHeaders).build())
+            .build()
+        return chain.proceed(request)
+    }
+
+    private fun rebuildHeaders() {
+        sdkHeaders = buildHeaders()
+    }
+
+    private fun buildHeaders(): Headers {
+        return Headers.Builder()
+            .add("X-SDK-Platform", "android")
+            .add("X-SDK-Version", SDKVersion.getVersion())
+            .add("X-Device-OS", "android")
             .apply {
-                if (appVersion.isNotEmpty()) addHeader("X-App-Version", appVersion)
-                if (packageName.isNotEmpty()) addHeader("X-App-Bundle-Id", packageName)
-                if (userId.isNotEmpty()) addHeader("X-User-Id", userId)
+                if (appVersion.isNotEmpty()) add("X-App-Version", appVersion)
+                if (packageName.isNotEmpty()) add("X-App-Bundle-Id", packageName)
+                if (userId.isNotEmpty()) add("X-User-Id", userId)
             }
             .build()
-        return chain.proceed(request)
+    }
+}
+
+/**
+ * Per-call timeout, attached to a request as a Retrofit @Tag
+ */
+internal class CallTimeout(val millis: Long)
+
+/**
+ * Applies a request's CallTimeout as a deadline for the whole call: DNS, connect,
+ * writing the request and reading the entire response, retries and redirects included.
+ * The client-wide connect/read/write timeouts still apply to each phase.
+ * The deadline has to be set before the call starts, so it cannot be done in an interceptor.
+ */
+internal class CallTimeoutCallFactory(private val client: OkHttpClient) : Call.Factory {
+    override fun newCall(request: Request): Call {
+        val call = client.newCall(request)
+        request.tag(CallTimeout::class.java)?.let { call.timeout().timeout(it.millis, TimeUnit.MILLISECONDS) }
+        return call
     }
 }
 
@@ -61,26 +239,100 @@ class SDKHeaderInterceptor : Interceptor {
  * API client for Monetai SDK
  */
 object ApiClient {
-    private const val BASE_URL = "https://monetai-api-414410537412.us-central1.run.app/sdk/"
+    const val DEFAULT_BASE_URL = "https://monetai-api-414410537412.us-central1.run.app/sdk/"
 
     internal val sdkHeaderInterceptor = SDKHeaderInterceptor()
 
-    private val gson: Gson = GsonBuilder()
+    internal val gson: Gson = GsonBuilder()
+        .registerTypeAdapter(Offer::class.java, OfferTypeAdapter())
         .create()
 
-    private val okHttpClient = OkHttpClient.Builder()
+    private val dns = CachingDns()
+
+    internal val okHttpClient = OkHttpClient.Builder()
+        .dns(dns)
+        .eventListener(dns.evictOnConnectFailure)
         .connectTimeout(30, TimeUnit.SECONDS)
         .readTimeout(30, TimeUnit.SECONDS)
         .writeTimeout(30, TimeUnit.SECONDS)
         .addInterceptor(sdkHeaderInterceptor)
         .build()
 
-    private val retrofit = Retrofit.Builder()
-        .baseUrl(BASE_URL)
-        .client(okHttpClient)
-        .addConverterFactory(NullOnEmptyConverterFactory())
-        .addConverterFactory(GsonConverterFactory.create(gson))
-        .build()
+    @Volatile
+    private var baseUrl: String = DEFAULT_BASE_URL
+
+    @Volatile
+    internal var apiService: ApiService = createApiService(DEFAULT_BASE_URL)
+        private set
+
+    internal val circuitBreakers = CircuitBreakers()
 
-    val apiService: ApiService = retrofit.create(ApiService::class.java)
+    internal val rateLimiters = RateLimiters()
+
+    internal val requestScheduler = RequestScheduler()
+
+    internal val offerHedger = Hedger()
+
+
+    /**
+     * Transport used by ApiRequests; replaceable with an in-process fake
+     */
+    @Volatile
+    internal var transport: Transport = createTransport(apiService)
+
+    /**
+     * Point the client at another backend (must end with "/")
+     */
+    fun setBaseUrl(baseUrl: String) {
+        this.baseUrl = baseUrl
+        apiService = createApiService(baseUrl)
+        transport = createTransport(apiService)
+    }
+
+    /**
+     * Resolve the API host and open a pooled connection (TCP, TLS, HTTP/2) ahead of the first request.
+     * Fire-and-forget; the response of the warm-up HEAD request is discarded.
+     */
+    internal fun prewarm() {
+        val request = Request.Builder()
+            .url(baseUrl)
+            .head()
+            .build()
+
+        okHttpClient.newCall(request).enqueue(object : Callback {
+            override fun onResponse(call: Call, response: Response) {
+                response.close()
+            }
+
+            override fun onFailure(call: Call, e: IOException) {
+                Log.d("ApiClient", "[Debug] Connection prewarm failed: ${e.message}")
+            }
+        })
+    }
+
+    // Throttle and schedule outside the breaker, so time spent waiting for a token
+    // or a free slot is not counted as a slow call. Hedging is outermost, so a hedged
+    // attempt takes its own token and slot like any other request.
+    private fun createTransport(apiService: ApiService): Transport {
+        return HedgingTransport(
+            ThrottlingTransport(
+                ScheduledTransport(
+                    CircuitBreakerTransport(RetrofitTransport(apiService), circuitBreakers),
+                    requestScheduler
+                ),
+                rateLimiters
+            ),
+            offerHedger
+        )
+    }
+
+    private fun createApiService(baseUrl: String): ApiService {
+        return Retrofit.Builder()
+            .baseUrl(baseUrl)
+            .callFactory(CallTimeoutCallFactory(okHttpClient))
+            .addConverterFactory(NullOnEmptyConverterFactory())
+            .addConverterFactory(GsonConverterFactory.create(gson))
+            .build()
+            .create(ApiService::class.java)
+    }
 }
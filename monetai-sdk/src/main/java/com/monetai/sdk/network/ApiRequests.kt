@@ -24,7 +24,7 @@ object ApiRequests {
                 version = SDKVersion.getVersion()
             )
 
-            val response = ApiClient.apiService.initialize(request)
+            val response = ApiClient.transport.initialize(request)
 
             Log.d("ApiRequests", "SDK initialization successful")
             response
@@ -47,23 +47,28 @@ object ApiRequests {
     /**
      * Create event
      */
-    suspend fun createEvent(
-        sdkKey: String,
-        userId: String,
+    internal suspend fun createEvent(
+        envelope: EventEnvelope,
         eventName: String,
-        params: Map<String, Any>? = null,
-        createdAt: String
+        params: Any? = null,
+        createdAt: String,
+        sampleRate: Double = 1.0
     ) {
-        val request = CreateEventRequest(
-            sdkKey = sdkKey,
-            userId = userId,
+        val body = envelope.createEventBody(
             eventName = eventName,
             params = params,
             createdAt = createdAt,
-            platform = "android"
+            sampleRate = sampleRate
         )
 
-        ApiClient.apiService.createEvent(request)
+        ApiClient.transport.createEvent(body)
+    }
+
+    /**
+     * Create several events in one request
+     */
+    internal suspend fun createEvents(envelope: EventEnvelope, events: EventEnvelope.Batch) {
+        ApiClient.transport.createEvents(envelope.createEventBatchBody(events))
     }
 
     /**
@@ -77,51 +82,27 @@ object ApiRequests {
             platform = "android"
         )
 
-        val response = ApiClient.apiService.getOffer(request)
-
-        if (!response.isSuccessful) {
-            throw retrofit2.HttpException(response)
-        }
-
-        return response.body()?.let { body ->
-            Offer(
-                agentId = body.agentId,
-                agentName = body.agentName,
-                products = body.products.map { product ->
-                    OfferProduct(
-                        name = product.name,
-                        sku = product.sku,
-                        discountRate = product.discountRate,
-                        isManual = product.isManual
-                    )
-                }
-            )
-        }
+        return ApiClient.transport.getOffer(request)
     }
 
     /**
      * Log view product item event
      */
-    suspend fun logViewProductItem(
-        sdkKey: String,
-        userId: String,
+    internal suspend fun logViewProductItem(
+        envelope: EventEnvelope,
         params: ViewProductItemParams,
         createdAt: String
     ) {
-        val request = ViewProductItemRequest(
-            sdkKey = sdkKey,
-            userId = userId,
-            productId = params.productId,
-            price = params.price,
-            regularPrice = params.regularPrice,
-            currencyCode = params.currencyCode,
-            promotionId = params.promotionId,
-            month = params.month,
-            createdAt = createdAt,
-            platform = "android"
-        )
+        val body = envelope.viewProductItemBody(params = params, createdAt = createdAt)
+
+        ApiClient.transport.logViewProductItem(body)
+    }
 
-        ApiClient.apiService.logViewProductItem(request)
+    /**
+     * Log several view product item events in one request
+     */
+    internal suspend fun logViewProductItems(envelope: EventEnvelope, items: EventEnvelope.Batch) {
+        ApiClient.transport.logViewProductItems(envelope.viewProductItemBatchBody(items))
     }
 
     /**
@@ -140,7 +121,7 @@ object ApiRequests {
             sdkKey = sdkKey
         )
 
-        ApiClient.apiService.mapTransactionToUser(request)
+        ApiClient.transport.mapTransactionToUser(request)
     }
 
     /**
@@ -159,6 +140,6 @@ object ApiRequests {
             purchases = purchases
         )
 
-        ApiClient.apiService.sendPurchaseHistory(request)
+        ApiClient.transport.sendPurchaseHistory(request)
     }
 }
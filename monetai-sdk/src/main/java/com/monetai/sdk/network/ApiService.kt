@@ -1,31 +1,50 @@
 package com.monetai.sdk.network
 
+import com.monetai.sdk.models.Offer
+import okhttp3.RequestBody
 import retrofit2.Response
 import retrofit2.http.*
 
 /**
  * API service interface for Monetai SDK
  */
-interface ApiService {
+internal interface ApiService {
 
     @POST("sdk-integrations")
     suspend fun initialize(
         @Body request: InitializeRequest
     ): InitializeResponse
 
+    // Body pre-encoded by EventEnvelope
     @POST("events")
     suspend fun createEvent(
-        @Body request: CreateEventRequest
+        @Body body: RequestBody
     ): EmptyResponse
 
+    // Decoded straight into Offer by OfferTypeAdapter.
+    // Conditional when the request carries an etag (see GetOfferRequest.etag)
     @POST("offers/get-offer")
     suspend fun getOffer(
-        @Body request: GetOfferRequest
-    ): Response<GetOfferResponse>
+        @Body request: GetOfferRequest,
+        @Tag timeout: CallTimeout
+    ): Response<Offer>
 
+    // Body pre-encoded by EventEnvelope
     @POST("events/view-product-item")
     suspend fun logViewProductItem(
-        @Body request: ViewProductItemRequest
+        @Body body: RequestBody
+    ): EmptyResponse
+
+    // Several events in one body, pre-encoded by EventEnvelope
+    @POST("events/batch")
+    suspend fun createEvents(
+        @Body body: RequestBody
+    ): EmptyResponse
+
+    // Several product impressions in one body, pre-encoded by EventEnvelope
+    @POST("events/view-product-item/batch")
+    suspend fun logViewProductItems(
+        @Body body: RequestBody
     ): EmptyResponse
 
     // Actual API endpoints
@@ -52,16 +71,16 @@ data class InitializeResponse(
     val organization_id: Int,
     val platform: String,
     val version: String,
-    val server_timestamp: Long
+    val server_timestamp: Long,
+    // Sampling rules by event name; absent if the server does not sample
+    val event_sampling: Map<String, EventSamplingRule>? = null
 )
 
-data class CreateEventRequest(
-    val sdkKey: String,
-    val userId: String,
-    val eventName: String,
-    val params: Map<String, Any>?,
-    val createdAt: String,
-    val platform: String = "android"
+data class EventSamplingRule(
+    // Fraction of events to keep (0..1)
+    val sample_rate: Double? = null,
+    // Maximum events kept per minute
+    val max_per_minute: Int? = null
 )
 
 // Offer API request/response models
@@ -69,34 +88,11 @@ data class GetOfferRequest(
     val sdkKey: String,
     val userId: String,
     val promotionId: Int,
-    val platform: String = "android"
-)
-
-data class GetOfferResponse(
-    val agentId: Int,
-    val agentName: String,
-    val products: List<OfferProductResponse>
-)
-
-data class OfferProductResponse(
-    val name: String,
-    val sku: String,
-    val discountRate: Double,
-    val isManual: Boolean
-)
-
-// View Product Item API request model
-data class ViewProductItemRequest(
-    val sdkKey: String,
-    val userId: String,
-    val productId: String,
-    val price: Double,
-    val regularPrice: Double,
-    val currencyCode: String,
-    val promotionId: Int,
-    val month: Int?,
-    val createdAt: String,
-    val platform: String = "android"
+    val platform: String = "android",
+    // ETag of the cached offer, for a 304 Not Modified answer. Sent in the body:
+    // If-None-Match on a POST must be answered with 412 rather than 304.
+    // Only sent once the backend supports it, see RetrofitTransport
+    val etag: String? = null
 )
 
 // Actual data structures
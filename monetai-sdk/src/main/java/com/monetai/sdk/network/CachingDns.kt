@@ -0,0 +1,64 @@
+package com.monetai.sdk.network
+
+import com.monetai.sdk.utils.SdkClock
+import okhttp3.Call
+import okhttp3.Dns
+import okhttp3.EventListener
+import okhttp3.Protocol
+import java.io.IOException
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.Proxy
+
+/**
+ * DNS resolver that keeps successful lookups for [ttlMs].
+ * Android only caches lookups for a few seconds, so without this a request made
+ * shortly after prewarming could pay for DNS resolution again. Failures are not cached,
+ * and a host's addresses are dropped as soon as a connection to it fails
+ * (see [evictOnConnectFailure]), so a moved host is resolved again on the next attempt.
+ */
+internal class CachingDns(
+    private val delegate: Dns = Dns.SYSTEM,
+    private val ttlMs: Long = 30_000L,
+    private val clock: () -> Long = { SdkClock.elapsedRealtime() }
+) : Dns {
+
+    private class Entry(val addresses: List<InetAddress>, val resolvedAt: Long)
+
+    private val entries = HashMap<String, Entry>()
+
+    /**
+     * Event listener for the OkHttpClient that evicts the host of a failed connection
+     */
+    val evictOnConnectFailure: EventListener = object : EventListener() {
+        override fun connectFailed(
+            call: Call,
+            inetSocketAddress: InetSocketAddress,
+            proxy: Proxy,
+            protocol: Protocol?,
+            ioe: IOException
+        ) {
+            evict(call.request().url().host())
+        }
+    }
+
+    override fun lookup(hostname: String): List<InetAddress> {
+        val now = clock()
+        synchronized(entries) {
+            val entry = entries[hostname]
+            if (entry != null && now - entry.resolvedAt < ttlMs) return entry.addresses
+        }
+
+        val addresses = delegate.lookup(hostname)
+        synchronized(entries) {
+            entries[hostname] = Entry(addresses, now)
+        }
+        return addresses
+    }
+
+    fun evict(hostname: String) {
+        synchronized(entries) {
+            entries.remove(hostname)
+        }
+    }
+}
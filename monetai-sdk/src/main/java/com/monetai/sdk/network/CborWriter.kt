@@ -0,0 +1,186 @@
+package com.monetai.sdk.network
+
+import com.google.gson.Gson
+import com.google.gson.JsonElement
+import com.monetai.sdk.models.EventParams
+import okio.Buffer
+import okio.Utf8
+
+/**
+ * Minimal CBOR (RFC 8949) encoder for event bodies.
+ * Covers maps, arrays, text strings, integers, floating point numbers, booleans and null.
+ * Values of other types are mapped by [gson], so they encode to the same structure as in a JSON body.
+ */
+internal class CborWriter(private val buffer: Buffer, private val gson: Gson) {
+
+    companion object {
+        private const val MAJOR_UNSIGNED = 0
+        private const val MAJOR_NEGATIVE = 1
+        private const val MAJOR_TEXT = 3
+        private const val MAJOR_ARRAY = 4
+        private const val MAJOR_MAP = 5
+
+        private const val FALSE = 0xF4
+        private const val TRUE = 0xF5
+        private const val NULL = 0xF6
+        private const val FLOAT32 = 0xFA
+        private const val FLOAT64 = 0xFB
+        private const val INDEFINITE_MAP = 0xBF
+        private const val BREAK = 0xFF
+    }
+
+    /**
+     * Open a map whose size is not known up front; close it with [endMap]
+     */
+    fun beginMap(): CborWriter {
+        buffer.writeByte(INDEFINITE_MAP)
+        return this
+    }
+
+    fun endMap(): CborWriter {
+        buffer.writeByte(BREAK)
+        return this
+    }
+
+    fun beginMap(size: Int): CborWriter {
+        writeHead(MAJOR_MAP, size.toLong())
+        return this
+    }
+
+    fun beginArray(size: Int): CborWriter {
+        writeHead(MAJOR_ARRAY, size.toLong())
+        return this
+    }
+
+    fun name(name: String): CborWriter = value(name)
+
+    fun value(value: String): CborWriter {
+        writeHead(MAJOR_TEXT, Utf8.size(value))
+        buffer.writeUtf8(value)
+        return this
+    }
+
+    fun value(value: Long): CborWriter {
+        if (value >= 0) {
+            writeHead(MAJOR_UNSIGNED, value)
+        } else {
+            writeHead(MAJOR_NEGATIVE, -1 - value)
+        }
+        return this
+    }
+
+    fun value(value: Double): CborWriter {
+        // Use single precision when it is lossless
+        val single = value.toFloat()
+        if (single.toDouble() == value || value.isNaN()) {
+            buffer.writeByte(FLOAT32)
+            buffer.writeInt(single.toRawBits())
+        } else {
+            buffer.writeByte(FLOAT64)
+            buffer.writeLong(value.toRawBits())
+        }
+        return this
+    }
+
+    fun value(value: Boolean): CborWriter {
+        buffer.writeByte(if (value) TRUE else FALSE)
+        return this
+    }
+
+    fun nullValue(): CborWriter {
+        buffer.writeByte(NULL)
+        return this
+    }
+
+    /**
+     * Write an arbitrary parameter value the way Gson would map it to JSON
+     */
+    fun valueOf(value: Any?): CborWriter {
+        when (value) {
+            null -> nullValue()
+            is String -> value(value)
+            is Boolean -> value(value)
+            is Int -> value(value.toLong())
+            is Long -> value(value)
+            is Short -> value(value.toLong())
+            is Byte -> value(value.toLong())
+            is Number -> value(value.toDouble())
+            is EventParams -> value.writeTo(this)
+            is Map<*, *> -> {
+                // Gson leaves out null map values, and so does the CBOR body
+                beginMap(value.count { it.value != null })
+                for ((key, item) in value) {
+                    if (item == null) continue
+                    name(key.toString())
+                    valueOf(item)
+                }
+            }
+            is Collection<*> -> {
+                beginArray(value.size)
+                for (item in value) valueOf(item)
+            }
+            is Array<*> -> {
+                beginArray(value.size)
+                for (item in value) valueOf(item)
+            }
+            is JsonElement -> value(value)
+            // Primitive arrays, enums, data classes and the like
+            else -> value(gson.toJsonTree(value))
+        }
+        return this
+    }
+
+    /**
+     * Write a Gson tree the way Gson writes it as JSON: null object members are left out
+     */
+    fun value(value: JsonElement): CborWriter {
+        when {
+            value.isJsonNull -> nullValue()
+            value.isJsonPrimitive -> {
+                val primitive = value.asJsonPrimitive
+                when {
+                    primitive.isBoolean -> value(primitive.asBoolean)
+                    primitive.isNumber -> valueOf(primitive.asNumber)
+                    else -> value(primitive.asString)
+                }
+            }
+            value.isJsonArray -> {
+                val array = value.asJsonArray
+                beginArray(array.size())
+                for (item in array) value(item)
+            }
+            else -> {
+                val members = value.asJsonObject.entrySet().filter { !it.value.isJsonNull }
+                beginMap(members.size)
+                for ((key, item) in members) {
+                    name(key)
+                    value(item)
+                }
+            }
+        }
+        return this
+    }
+
+    private fun writeHead(major: Int, argument: Long) {
+        val type = major shl 5
+        when {
+            argument < 24 -> buffer.writeByte(type or argument.toInt())
+            argument <= 0xFF -> {
+                buffer.writeByte(type or 24)
+                buffer.writeByte(argument.toInt())
+            }
+            argument <= 0xFFFF -> {
+                buffer.writeByte(type or 25)
+                buffer.writeShort(argument.toInt())
+            }
+            argument <= 0xFFFFFFFFL -> {
+                buffer.writeByte(type or 26)
+                buffer.writeInt(argument.toInt())
+            }
+            else -> {
+                buffer.writeByte(type or 27)
+                buffer.writeLong(argument)
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.monetai.sdk.network
+
+import android.util.Log
+import com.monetai.sdk.MonetaiError
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.utils.SdkClock
+import kotlinx.coroutines.CancellationException
+import okhttp3.RequestBody
+import retrofit2.HttpException
+import java.io.IOException
+import java.util.EnumMap
+
+/**
+ * Monetai API endpoint groups, each guarded by its own circuit breaker
+ */
+enum class ApiEndpoint {
+    INITIALIZE,
+    EVENTS,
+    VIEW_PRODUCT_ITEM,
+    OFFERS,
+    TRANSACTION_MAPPING,
+    RECEIPTS
+}
+
+/**
+ * Circuit breaker state
+ */
+enum class CircuitState {
+    /** Requests flow normally */
+    CLOSED,
+
+    /** Requests fail fast until the open period ends */
+    OPEN,
+
+    /** A single probe request is allowed to test recovery */
+    HALF_OPEN
+}
+
+/**
+ * Listener for circuit breaker state transitions
+ */
+fun interface CircuitBreakerListener {
+    fun onStateChanged(endpoint: ApiEndpoint, state: CircuitState)
+}
+
+/**
+ * Count-based circuit breaker driven by failure rate and slow-call rate.
+ * Opens when either rate crosses its threshold over the last [windowSize] calls,
+ * fails fast while open, then lets a single probe through; the probe's outcome
+ * closes the circuit or opens it again.
+ */
+internal class CircuitBreaker(
+    private val endpoint: ApiEndpoint,
+    private val listener: () -> CircuitBreakerListener?,
+    private val windowSize: Int = 20,
+    private val minimumCalls: Int = 10,
+    private val failureRateThreshold: Float = 0.5f,
+    private val slowCallDurationMs: Long = 10_000L,
+    private val slowCallRateThreshold: Float = 0.8f,
+    private val openDurationMs: Long = 30_000L,
+    private val clock: () -> Long = { SdkClock.elapsedRealtime() }
+) {
+    companion object {
+        private const val TAG = "CircuitBreaker"
+    }
+
+    private val lock = Any()
+
+    // Guarded by lock
+    private var state = CircuitState.CLOSED
+    private val failures = BooleanArray(windowSize)
+    private val slowCalls = BooleanArray(windowSize)
+    private var recorded = 0
+    private var next = 0
+    private var openedAt = 0L
+    private var probeInFlight = false
+
+    val currentState: CircuitState
+        get() = synchronized(lock) { state }
+
+    /**
+     * Milliseconds until an open circuit lets a probe through; 0 if requests may be sent now
+     */
+    fun remainingOpenMs(): Long {
+        synchronized(lock) {
+            if (state != CircuitState.OPEN) return 0L
+            return (openedAt + openDurationMs - clock()).coerceAtLeast(0L)
+        }
+    }
+
+    /**
+     * Run [block] through the breaker
+     * @throws MonetaiError.CircuitOpen if the circuit does not allow the request
+     */
+    suspend fun <T> execute(block: suspend () -> T): T {
+        if (!tryAcquire()) throw MonetaiError.CircuitOpen(endpoint)
+
+        val start = clock()
+        try {
+            val result = block()
+            record(failed = false, durationMs = clock() - start)
+            return result
+        } catch (e: CancellationException) {
+            release()
+            throw e
+        } catch (e: Exception) {
+            record(failed = isBackendFailure(e), durationMs = clock() - start)
+            throw e
+        }
+    }
+
+    private fun tryAcquire(): Boolean {
+        val transitioned = synchronized(lock) {
+            when (state) {
+                CircuitState.CLOSED -> return true
+                CircuitState.HALF_OPEN -> {
+                    if (probeInFlight) return false
+                    probeInFlight = true
+                    return true
+                }
+                CircuitState.OPEN -> {
+                    if (clock() - openedAt < openDurationMs) return false
+                    state = CircuitState.HALF_OPEN
+                    probeInFlight = true
+                    true
+                }
+            }
+        }
+        if (transitioned) notifyState(CircuitState.HALF_OPEN)
+        return true
+    }
+
+    private fun release() {
+        synchronized(lock) {
+            if (state == CircuitState.HALF_OPEN) probeInFlight = false
+        }
+    }
+
+    private fun record(failed: Boolean, durationMs: Long) {
+        val slow = durationMs >= slowCallDurationMs
+        val newState = synchronized(lock) {
+            when (state) {
+                CircuitState.HALF_OPEN -> {
+                    probeInFlight = false
+                    if (failed || slow) open() else close()
+                }
+                CircuitState.CLOSED -> {
+                    failures[next] = failed
+                    slowCalls[next] = slow
+                    next = (next + 1) % windowSize
+                    if (recorded < windowSize) recorded++
+                    if (recorded >= minimumCalls && isOverThreshold()) open() else null
+                }
+                // A call admitted before the circuit opened; its outcome is already reflected
+                CircuitState.OPEN -> null
+            }
+        }
+        newState?.let { notifyState(it) }
+    }
+
+    private fun isOverThreshold(): Boolean {
+        var failureCount = 0
+        var slowCount = 0
+        for (i in 0 until recorded) {
+            if (failures[i]) failureCount++
+            if (slowCalls[i]) slowCount++
+        }
+        return failureCount >= failureRateThreshold * recorded || slowCount >= slowCallRateThreshold * recorded
+    }
+
+    // Called under lock
+    private fun open(): CircuitState {
+        state = CircuitState.OPEN
+        openedAt = clock()
+        return state
+    }
+
+    // Called under lock
+    private fun close(): CircuitState {
+        state = CircuitState.CLOSED
+        recorded = 0
+        next = 0
+        return state
+    }
+
+    private fun notifyState(newState: CircuitState) {
+        try {
+            listener()?.onStateChanged(endpoint, newState)
+        } catch (e: Exception) {
+            Log.e(TAG, "[Error] Circuit breaker listener failed: ${e.message}")
+        }
+    }
+
+    /**
+     * Network errors and server errors count against the backend; client errors do not
+     */
+    private fun isBackendFailure(e: Exception): Boolean {
+        return when (e) {
+            is HttpException -> e.code() >= 500
+            is IOException -> true
+            else -> false
+        }
+    }
+}
+
+/**
+ * One circuit breaker per endpoint group
+ */
+internal class CircuitBreakers {
+    @Volatile
+    var listener: CircuitBreakerListener? = null
+
+    private val breakers = EnumMap<ApiEndpoint, CircuitBreaker>(ApiEndpoint::class.java).apply {
+        for (endpoint in ApiEndpoint.values()) {
+            put(endpoint, CircuitBreaker(endpoint, { listener }))
+        }
+    }
+
+    operator fun get(endpoint: ApiEndpoint): CircuitBreaker = breakers.getValue(endpoint)
+}
+
+/**
+ * Transport decorator that routes every call through its endpoint's circuit breaker
+ */
+internal class CircuitBreakerTransport(
+    private val delegate: Transport,
+    private val breakers: CircuitBreakers
+) : Transport {
+
+    override suspend fun initialize(request: InitializeRequest): InitializeResponse =
+        breakers[ApiEndpoint.INITIALIZE].execute { delegate.initialize(request) }
+
+    override suspend fun createEvent(body: RequestBody) =
+        breakers[ApiEndpoint.EVENTS].execute { delegate.createEvent(body) }
+
+    override suspend fun logViewProductItem(body: RequestBody) =
+        breakers[ApiEndpoint.VIEW_PRODUCT_ITEM].execute { delegate.logViewProductItem(body) }
+
+    override suspend fun createEvents(body: RequestBody) =
+        breakers[ApiEndpoint.EVENTS].execute { delegate.createEvents(body) }
+
+    override suspend fun logViewProductItems(body: RequestBody) =
+        breakers[ApiEndpoint.VIEW_PRODUCT_ITEM].execute { delegate.logViewProductItems(body) }
+
+    override suspend fun getOffer(request: GetOfferRequest): Offer? =
+        breakers[ApiEndpoint.OFFERS].execute { delegate.getOffer(request) }
+
+    override suspend fun mapTransactionToUser(request: TransactionMappingRequest) =
+        breakers[ApiEndpoint.TRANSACTION_MAPPING].execute { delegate.mapTransactionToUser(request) }
+
+    override suspend fun sendPurchaseHistory(request: PurchaseHistoryRequest) =
+        breakers[ApiEndpoint.RECEIPTS].execute { delegate.sendPurchaseHistory(request) }
+}
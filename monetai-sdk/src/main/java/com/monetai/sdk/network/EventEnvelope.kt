@@ -0,0 +1,215 @@
+package com.monetai.sdk.network
+
+import com.google.gson.Gson
+import com.google.gson.stream.JsonWriter
+import com.monetai.sdk.models.EventEncoding
+import com.monetai.sdk.models.EventParams
+import com.monetai.sdk.models.ViewProductItemParams
+import okhttp3.MediaType
+import okhttp3.RequestBody
+import okio.Buffer
+import okio.ByteString
+import java.io.OutputStreamWriter
+
+/**
+ * Identity envelope shared by all event bodies of a session.
+ * The identity fields (sdkKey, userId, platform) are serialized once when the
+ * session starts; each event body is that prefix followed by the event's own fields,
+ * and a batch body is the prefix followed by an array of events.
+ * Bodies are JSON by default, or CBOR when selected; the Content-Type tells the server which.
+ */
+internal class EventEnvelope(
+    sdkKey: String,
+    userId: String,
+    private val gson: Gson,
+    private val encoding: EventEncoding = EventEncoding.JSON
+) {
+    companion object {
+        private val JSON = MediaType.get("application/json; charset=UTF-8")
+        private val CBOR = MediaType.get("application/cbor")
+    }
+
+    // JSON: an open object, {"sdkKey":"...","userId":"...","platform":"android"
+    // CBOR: an indefinite-length map header followed by the identity entries
+    private val prefix: ByteString = when (encoding) {
+        EventEncoding.JSON -> Buffer().also { buffer ->
+            JsonWriter(OutputStreamWriter(buffer.outputStream(), Charsets.UTF_8)).use { writer ->
+                writer.beginObject()
+                writer.name("sdkKey").value(sdkKey)
+                writer.name("userId").value(userId)
+                writer.name("platform").value("android")
+                writer.endObject()
+            }
+        }.let { buffer -> buffer.readByteString(buffer.size() - 1) }
+        EventEncoding.CBOR -> Buffer().also { buffer ->
+            CborWriter(buffer, gson)
+                .beginMap()
+                .name("sdkKey").value(sdkKey)
+                .name("userId").value(userId)
+                .name("platform").value("android")
+        }.readByteString()
+    }
+
+    /**
+     * Events of a batch body, read by position
+     */
+    interface Batch {
+        val size: Int
+        fun eventName(index: Int): String
+        /** Map<String, Any>, EventParams or null */
+        fun params(index: Int): Any?
+        fun viewProductItem(index: Int): ViewProductItemParams
+        fun createdAt(index: Int): String
+        fun sampleRate(index: Int): Double
+    }
+
+    /**
+     * Body for the events endpoint
+     * @param params Map<String, Any>, EventParams or null
+     * @param sampleRate Rate the event was sampled at; only sent when below 1
+     */
+    fun createEventBody(eventName: String, params: Any?, createdAt: String, sampleRate: Double = 1.0): RequestBody {
+        return when (encoding) {
+            EventEncoding.JSON -> encodeJson { writer -> writeEvent(writer, eventName, params, createdAt, sampleRate) }
+            EventEncoding.CBOR -> encodeCbor { writer -> writeEvent(writer, eventName, params, createdAt, sampleRate) }
+        }
+    }
+
+    /**
+     * Body for the events batch endpoint: the identity fields once, then "events",
+     * an array of objects with the fields of [createEventBody]
+     */
+    fun createEventBatchBody(batch: Batch): RequestBody {
+        return when (encoding) {
+            EventEncoding.JSON -> encodeJson { writer ->
+                writer.name("events").beginArray()
+                for (i in 0 until batch.size) {
+                    writer.beginObject()
+                    writeEvent(writer, batch.eventName(i), batch.params(i), batch.createdAt(i), batch.sampleRate(i))
+                    writer.endObject()
+                }
+                writer.endArray()
+            }
+            EventEncoding.CBOR -> encodeCbor { writer ->
+                writer.name("events").beginArray(batch.size)
+                for (i in 0 until batch.size) {
+                    writer.beginMap()
+                    writeEvent(writer, batch.eventName(i), batch.params(i), batch.createdAt(i), batch.sampleRate(i))
+                    writer.endMap()
+                }
+            }
+        }
+    }
+
+    /**
+     * Body for the view product item endpoint
+     */
+    fun viewProductItemBody(params: ViewProductItemParams, createdAt: String): RequestBody {
+        return when (encoding) {
+            EventEncoding.JSON -> encodeJson { writer -> writeViewProductItem(writer, params, createdAt) }
+            EventEncoding.CBOR -> encodeCbor { writer -> writeViewProductItem(writer, params, createdAt) }
+        }
+    }
+
+    /**
+     * Body for the view product item batch endpoint: the identity fields once, then "items",
+     * an array of objects with the fields of [viewProductItemBody]
+     */
+    fun viewProductItemBatchBody(batch: Batch): RequestBody {
+        return when (encoding) {
+            EventEncoding.JSON -> encodeJson { writer ->
+                writer.name("items").beginArray()
+                for (i in 0 until batch.size) {
+                    writer.beginObject()
+                    writeViewProductItem(writer, batch.viewProductItem(i), batch.createdAt(i))
+                    writer.endObject()
+                }
+                writer.endArray()
+            }
+            EventEncoding.CBOR -> encodeCbor { writer ->
+                writer.name("items").beginArray(batch.size)
+                for (i in 0 until batch.size) {
+                    writer.beginMap()
+                    writeViewProductItem(writer, batch.viewProductItem(i), batch.createdAt(i))
+                    writer.endMap()
+                }
+            }
+        }
+    }
+
+    private fun writeEvent(writer: JsonWriter, eventName: String, params: Any?, createdAt: String, sampleRate: Double) {
+        writer.name("eventName").value(eventName)
+        when (params) {
+            null -> Unit
+            is EventParams -> {
+                writer.name("params")
+                params.writeTo(writer)
+            }
+            else -> {
+                writer.name("params")
+                gson.toJson(params, params.javaClass, writer)
+            }
+        }
+        if (sampleRate < 1.0) {
+            writer.name("sampleRate").value(sampleRate)
+        }
+        writer.name("createdAt").value(createdAt)
+    }
+
+    private fun writeEvent(writer: CborWriter, eventName: String, params: Any?, createdAt: String, sampleRate: Double) {
+        writer.name("eventName").value(eventName)
+        if (params != null) {
+            writer.name("params").valueOf(params)
+        }
+        if (sampleRate < 1.0) {
+            writer.name("sampleRate").value(sampleRate)
+        }
+        writer.name("createdAt").value(createdAt)
+    }
+
+    private fun writeViewProductItem(writer: JsonWriter, params: ViewProductItemParams, createdAt: String) {
+        writer.name("productId").value(params.productId)
+        writer.name("price").value(params.price)
+        writer.name("regularPrice").value(params.regularPrice)
+        writer.name("currencyCode").value(params.currencyCode)
+        writer.name("promotionId").value(params.promotionId.toLong())
+        params.month?.let { writer.name("month").value(it.toLong()) }
+        writer.name("createdAt").value(createdAt)
+    }
+
+    private fun writeViewProductItem(writer: CborWriter, params: ViewProductItemParams, createdAt: String) {
+        writer.name("productId").value(params.productId)
+        writer.name("price").value(params.price)
+        writer.name("regularPrice").value(params.regularPrice)
+        writer.name("currencyCode").value(params.currencyCode)
+        writer.name("promotionId").value(params.promotionId.toLong())
+        params.month?.let { writer.name("month").value(it.toLong()) }
+        writer.name("createdAt").value(createdAt)
+    }
+
+    private inline fun encodeJson(writeFields: (JsonWriter) -> Unit): RequestBody {
+        val fields = Buffer()
+        JsonWriter(OutputStreamWriter(fields.outputStream(), Charsets.UTF_8)).use { writer ->
+            writer.beginObject()
+            writeFields(writer)
+            writer.endObject()
+        }
+        // Drop the opening brace; the prefix already opened the object
+        fields.skip(1)
+
+        val body = Buffer()
+        body.write(prefix)
+        body.writeByte(','.code)
+        body.writeAll(fields)
+        return RequestBody.create(JSON, body.readByteString())
+    }
+
+    private inline fun encodeCbor(writeFields: (CborWriter) -> Unit): RequestBody {
+        val body = Buffer()
+        body.write(prefix)
+        val writer = CborWriter(body, gson)
+        writeFields(writer)
+        writer.endMap()
+        return RequestBody.create(CBOR, body.readByteString())
+    }
+}
@@ -0,0 +1,139 @@
+package com.monetai.sdk.network
+
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.utils.SdkClock
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.supervisorScope
+import kotlinx.coroutines.withTimeoutOrNull
+import okhttp3.RequestBody
+
+/**
+ * Sliding window of recent request latencies
+ */
+internal class LatencyWindow(private val size: Int = 64) {
+    private val samples = LongArray(size)
+    private var count = 0
+    private var next = 0
+
+    @Synchronized
+    fun record(latencyMs: Long) {
+        samples[next] = latencyMs
+        next = (next + 1) % size
+        if (count < size) count++
+    }
+
+    /**
+     * Latency at [percentile] (0..1), or null if fewer than [minSamples] were recorded
+     */
+    @Synchronized
+    fun percentile(percentile: Double, minSamples: Int): Long? {
+        if (count < minSamples) return null
+        val sorted = samples.copyOf(count).apply { sort() }
+        val index = (percentile * (count - 1)).toInt().coerceIn(0, count - 1)
+        return sorted[index]
+    }
+}
+
+/**
+ * Request hedging: if the first attempt has not answered within a delay learned from
+ * recent latencies (the [percentile] latency), an identical second attempt is sent and
+ * whichever succeeds first wins; the other is cancelled.
+ * Each request earns [budgetRatio] of a hedge, so hedges add at most that share of extra load.
+ */
+internal class Hedger(
+    private val percentile: Double = 0.95,
+    private val minSamples: Int = 10,
+    private val minDelayMs: Long = 50L,
+    private val defaultDelayMs: Long = 1_000L,
+    private val budgetRatio: Double = 0.1,
+    private val maxBudget: Double = 3.0,
+    private val clock: () -> Long = { SdkClock.elapsedRealtime() }
+) {
+    @Volatile
+    var enabled: Boolean = false
+
+    private val latencies = LatencyWindow()
+    private val lock = Any()
+
+    // Guarded by lock
+    private var budget = 1.0
+
+    suspend fun <T> execute(block: suspend () -> T): T {
+        if (!enabled) return block()
+
+        synchronized(lock) {
+            budget = (budget + budgetRatio).coerceAtMost(maxBudget)
+        }
+        val hedgeDelayMs = latencies.percentile(percentile, minSamples)?.coerceAtLeast(minDelayMs) ?: defaultDelayMs
+
+        return supervisorScope {
+            val results = Channel<Result<T>>(2)
+            val start = clock()
+            val primary = launch {
+                val result = runCatching { block() }
+                if (result.isSuccess) latencies.record(clock() - start)
+                results.trySend(result)
+            }
+
+            var hedge: Job? = null
+            var outcome = withTimeoutOrNull(hedgeDelayMs) { results.receive() }
+            if (outcome == null) {
+                if (tryTakeHedge()) {
+                    hedge = launch { results.trySend(runCatching { block() }) }
+                }
+                outcome = results.receive()
+            }
+            // One attempt failed while the other is still running; give it a chance
+            if (outcome.isFailure && hedge != null) {
+                val other = results.receive()
+                if (other.isSuccess) outcome = other
+            }
+
+            if (primary.isActive) {
+                // Lost to the hedge; its latency is at least this long
+                latencies.record(clock() - start)
+                primary.cancel()
+            }
+            hedge?.cancel()
+            outcome.getOrThrow()
+        }
+    }
+
+    private fun tryTakeHedge(): Boolean {
+        synchronized(lock) {
+            if (budget < 1.0) return false
+            budget -= 1.0
+            return true
+        }
+    }
+}
+
+/**
+ * Transport decorator that hedges offer requests; other calls pass through
+ */
+internal class HedgingTransport(
+    private val delegate: Transport,
+    private val hedger: Hedger
+) : Transport {
+
+    override suspend fun initialize(request: InitializeRequest): InitializeResponse = delegate.initialize(request)
+
+    override suspend fun createEvent(body: RequestBody) = delegate.createEvent(body)
+
+    override suspend fun logViewProductItem(body: RequestBody) = delegate.logViewProductItem(body)
+
+    override suspend fun createEvents(body: RequestBody) = delegate.createEvents(body)
+
+    override suspend fun logViewProductItems(body: RequestBody) = delegate.logViewProductItems(body)
+
+    override suspend fun getOffer(request: GetOfferRequest): Offer? =
+        hedger.execute { delegate.getOffer(request) }
+
+    override suspend fun mapTransactionToUser(request: TransactionMappingRequest) =
+        delegate.mapTransactionToUser(request)
+
+    override suspend fun sendPurchaseHistory(request: PurchaseHistoryRequest) =
+        delegate.sendPurchaseHistory(request)
+}
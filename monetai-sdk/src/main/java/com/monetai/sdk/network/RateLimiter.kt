@@ -0,0 +1,180 @@
+package com.monetai.sdk.network
+
+import android.util.Log
+import com.monetai.sdk.MonetaiError
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.utils.SdkClock
+import kotlinx.coroutines.delay
+import okhttp3.RequestBody
+import retrofit2.HttpException
+import java.util.EnumMap
+import kotlin.math.ceil
+
+/**
+ * Token bucket limiting the request rate of one endpoint group after the server pushed back.
+ * Requests pass unlimited until the server pauses the bucket with a 429/503 Retry-After.
+ * Once the pause ends the bucket starts empty, so traffic ramps back up at [ratePerSecond]
+ * instead of bursting, and the limit lifts again after [recoveryMs] without another pause.
+ */
+internal class TokenBucket(
+    private val ratePerSecond: Double,
+    private val burst: Int,
+    private val recoveryMs: Long = DEFAULT_RECOVERY_MS,
+    private val clock: () -> Long = { SdkClock.elapsedRealtime() }
+) {
+    companion object {
+        private const val DEFAULT_RECOVERY_MS = 60_000L
+    }
+
+    private val lock = Any()
+
+    // Guarded by lock
+    private var tokens = burst.toDouble()
+    private var refilledAt = clock()
+    private var pausedUntil = 0L
+    private var limitedUntil = Long.MIN_VALUE
+
+    /**
+     * Milliseconds until the server-requested pause ends; 0 if not paused
+     */
+    fun remainingPauseMs(): Long {
+        synchronized(lock) {
+            return (pausedUntil - clock()).coerceAtLeast(0L)
+        }
+    }
+
+    /**
+     * Stop handing out tokens for [durationMs]
+     */
+    fun pauseFor(durationMs: Long) {
+        synchronized(lock) {
+            val until = clock() + durationMs
+            if (until > pausedUntil) {
+                pausedUntil = until
+                limitedUntil = until + recoveryMs
+                tokens = 0.0
+                refilledAt = until
+            }
+        }
+    }
+
+    /**
+     * Take a token, waiting for one if the bucket is limiting and empty
+     * @return false without taking a token if the bucket is paused
+     */
+    suspend fun acquire(): Boolean {
+        while (true) {
+            val waitMs = synchronized(lock) {
+                val now = clock()
+                if (now < pausedUntil) return false
+                // Not throttled recently: the server sets the pace, not a guess of ours
+                if (now >= limitedUntil) return true
+                if (now > refilledAt) {
+                    tokens = (tokens + (now - refilledAt) * ratePerSecond / 1000.0).coerceAtMost(burst.toDouble())
+                    refilledAt = now
+                }
+                if (tokens >= 1.0) {
+                    tokens -= 1.0
+                    return true
+                }
+                ceil((1.0 - tokens) * 1000.0 / ratePerSecond).toLong().coerceAtLeast(1L)
+            }
+            delay(waitMs)
+        }
+    }
+}
+
+/**
+ * One token bucket per endpoint group; rates apply only while recovering from a server pause
+ */
+internal class RateLimiters(clock: () -> Long = { SdkClock.elapsedRealtime() }) {
+    private val buckets = EnumMap<ApiEndpoint, TokenBucket>(ApiEndpoint::class.java).apply {
+        for (endpoint in ApiEndpoint.values()) {
+            put(endpoint, when (endpoint) {
+                ApiEndpoint.EVENTS, ApiEndpoint.VIEW_PRODUCT_ITEM -> TokenBucket(ratePerSecond = 20.0, burst = 40, clock = clock)
+                else -> TokenBucket(ratePerSecond = 5.0, burst = 10, clock = clock)
+            })
+        }
+    }
+
+    operator fun get(endpoint: ApiEndpoint): TokenBucket = buckets.getValue(endpoint)
+}
+
+/**
+ * Transport decorator that obeys 429/503 responses: the endpoint group is paused
+ * for the server's Retry-After, calls made during the pause fail fast with
+ * MonetaiError.RateLimited, and the group is rate limited while it recovers.
+ * A 503 without Retry-After is an outage, not throttling; it passes through
+ * to the circuit breaker instead of pausing the group.
+ */
+internal class ThrottlingTransport(
+    private val delegate: Transport,
+    private val limiters: RateLimiters
+) : Transport {
+
+    companion object {
+        private const val TAG = "ThrottlingTransport"
+        private const val DEFAULT_RETRY_AFTER_MS = 10_000L
+        private const val MAX_RETRY_AFTER_MS = 10 * 60_000L
+    }
+
+    override suspend fun initialize(request: InitializeRequest): InitializeResponse =
+        throttle(ApiEndpoint.INITIALIZE) { delegate.initialize(request) }
+
+    override suspend fun createEvent(body: RequestBody) =
+        throttle(ApiEndpoint.EVENTS) { delegate.createEvent(body) }
+
+    override suspend fun logViewProductItem(body: RequestBody) =
+        throttle(ApiEndpoint.VIEW_PRODUCT_ITEM) { delegate.logViewProductItem(body) }
+
+    override suspend fun createEvents(body: RequestBody) =
+        throttle(ApiEndpoint.EVENTS) { delegate.createEvents(body) }
+
+    override suspend fun logViewProductItems(body: RequestBody) =
+        throttle(ApiEndpoint.VIEW_PRODUCT_ITEM) { delegate.logViewProductItems(body) }
+
+    override suspend fun getOffer(request: GetOfferRequest): Offer? =
+        throttle(ApiEndpoint.OFFERS) { delegate.getOffer(request) }
+
+    override suspend fun mapTransactionToUser(request: TransactionMappingRequest) =
+        throttle(ApiEndpoint.TRANSACTION_MAPPING) { delegate.mapTransactionToUser(request) }
+
+    override suspend fun sendPurchaseHistory(request: PurchaseHistoryRequest) =
+        throttle(ApiEndpoint.RECEIPTS) { delegate.sendPurchaseHistory(request) }
+
+    private suspend fun <T> throttle(endpoint: ApiEndpoint, block: suspend () -> T): T {
+        val bucket = limiters[endpoint]
+        if (!bucket.acquire()) {
+            throw MonetaiError.RateLimited(endpoint, bucket.remainingPauseMs())
+        }
+        try {
+            return block()
+        } catch (e: HttpException) {
+            if (!isThrottled(e)) throw e
+
+            val retryAfterMs = parseRetryAfter(e)
+            bucket.pauseFor(retryAfterMs)
+            Log.d(TAG, "[Debug] $endpoint throttled by server (${e.code()}), pausing for ${retryAfterMs}ms")
+            throw MonetaiError.RateLimited(endpoint, retryAfterMs)
+        }
+    }
+
+    private fun isThrottled(e: HttpException): Boolean = when (e.code()) {
+        429 -> true
+        503 -> e.response()?.headers()?.get("Retry-After") != null
+        else -> false
+    }
+
+    /**
+     * Retry-After is either delay-seconds or an HTTP date
+     */
+    private fun parseRetryAfter(e: HttpException): Long {
+        val headers = e.response()?.headers() ?: return DEFAULT_RETRY_AFTER_MS
+        val value = headers.get("Retry-After")?.trim() ?: return DEFAULT_RETRY_AFTER_MS
+
+        val delayMs = value.toLongOrNull()?.let { it * 1000L }
+            ?: headers.getDate("Retry-After")?.let { it.time - System.currentTimeMillis() }
+            ?: DEFAULT_RETRY_AFTER_MS
+        return delayMs.coerceIn(0L, MAX_RETRY_AFTER_MS)
+    }
+}
@@ -0,0 +1,169 @@
+package com.monetai.sdk.network
+
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.utils.SdkClock
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import okhttp3.RequestBody
+import java.util.ArrayDeque
+import java.util.EnumMap
+
+/**
+ * Request priority lanes
+ */
+internal enum class RequestLane {
+    /** Revenue-critical and user-visible calls: initialize, offers, purchase mappings, receipts */
+    CRITICAL,
+
+    /** Bulk analytics: events and product impressions */
+    ANALYTICS
+}
+
+/**
+ * Queue wait time of one lane
+ */
+internal data class LaneStats(
+    val requests: Long,
+    val totalWaitMs: Long,
+    val maxWaitMs: Long
+) {
+    val averageWaitMs: Long get() = if (requests == 0L) 0L else totalWaitMs / requests
+}
+
+/**
+ * Limits concurrent requests and hands free slots to the critical lane first.
+ * Analytics requests only start while no critical request is waiting, and never
+ * take the last slot, so a purchase mapping or offer fetch is not stuck behind a batch of events.
+ * Each analytics request carries a whole drained batch of events, so the analytics cap limits
+ * uploads, not events.
+ */
+internal class RequestScheduler(
+    private val maxConcurrent: Int = 4,
+    private val maxAnalytics: Int = maxConcurrent - 1,
+    private val clock: () -> Long = { SdkClock.elapsedRealtime() }
+) {
+    private val lock = Any()
+
+    // Guarded by lock
+    private var running = 0
+    private var runningAnalytics = 0
+    private val waiting = EnumMap<RequestLane, ArrayDeque<CompletableDeferred<Unit>>>(RequestLane::class.java).apply {
+        for (lane in RequestLane.values()) put(lane, ArrayDeque())
+    }
+    private val requests = LongArray(RequestLane.values().size)
+    private val totalWaitMs = LongArray(RequestLane.values().size)
+    private val maxWaitMs = LongArray(RequestLane.values().size)
+
+    /**
+     * Run [block] once a slot is free for [lane]
+     */
+    suspend fun <T> run(lane: RequestLane, block: suspend () -> T): T {
+        val queuedAt = clock()
+        acquire(lane)
+        recordWait(lane, clock() - queuedAt)
+        try {
+            return block()
+        } finally {
+            release(lane)
+        }
+    }
+
+    fun stats(): Map<RequestLane, LaneStats> {
+        synchronized(lock) {
+            return RequestLane.values().associateWith { lane ->
+                LaneStats(requests[lane.ordinal], totalWaitMs[lane.ordinal], maxWaitMs[lane.ordinal])
+            }
+        }
+    }
+
+    private suspend fun acquire(lane: RequestLane) {
+        val ticket = CompletableDeferred<Unit>()
+        synchronized(lock) {
+            if (canStart(lane)) {
+                start(lane)
+                return
+            }
+            waiting.getValue(lane).addLast(ticket)
+        }
+
+        try {
+            ticket.await()
+        } catch (e: CancellationException) {
+            val granted = synchronized(lock) { !waiting.getValue(lane).remove(ticket) }
+            // The slot was handed over just as we were cancelled; give it back
+            if (granted) release(lane)
+            throw e
+        }
+    }
+
+    // Called under lock
+    private fun canStart(lane: RequestLane): Boolean {
+        if (running >= maxConcurrent) return false
+        return when (lane) {
+            RequestLane.CRITICAL -> true
+            RequestLane.ANALYTICS -> runningAnalytics < maxAnalytics && waiting.getValue(RequestLane.CRITICAL).isEmpty()
+        }
+    }
+
+    // Called under lock
+    private fun start(lane: RequestLane) {
+        running++
+        if (lane == RequestLane.ANALYTICS) runningAnalytics++
+    }
+
+    private fun release(lane: RequestLane) {
+        synchronized(lock) {
+            running--
+            if (lane == RequestLane.ANALYTICS) runningAnalytics--
+
+            for (next in RequestLane.values()) {
+                val queue = waiting.getValue(next)
+                while (queue.isNotEmpty() && canStart(next)) {
+                    start(next)
+                    queue.removeFirst().complete(Unit)
+                }
+            }
+        }
+    }
+
+    private fun recordWait(lane: RequestLane, waitMs: Long) {
+        synchronized(lock) {
+            requests[lane.ordinal]++
+            totalWaitMs[lane.ordinal] += waitMs
+            if (waitMs > maxWaitMs[lane.ordinal]) maxWaitMs[lane.ordinal] = waitMs
+        }
+    }
+}
+
+/**
+ * Transport decorator that puts every call in its priority lane
+ */
+internal class ScheduledTransport(
+    private val delegate: Transport,
+    private val scheduler: RequestScheduler
+) : Transport {
+
+    override suspend fun initialize(request: InitializeRequest): InitializeResponse =
+        scheduler.run(RequestLane.CRITICAL) { delegate.initialize(request) }
+
+    override suspend fun createEvent(body: RequestBody) =
+        scheduler.run(RequestLane.ANALYTICS) { delegate.createEvent(body) }
+
+    override suspend fun logViewProductItem(body: RequestBody) =
+        scheduler.run(RequestLane.ANALYTICS) { delegate.logViewProductItem(body) }
+
+    override suspend fun createEvents(body: RequestBody) =
+        scheduler.run(RequestLane.ANALYTICS) { delegate.createEvents(body) }
+
+    override suspend fun logViewProductItems(body: RequestBody) =
+        scheduler.run(RequestLane.ANALYTICS) { delegate.logViewProductItems(body) }
+
+    override suspend fun getOffer(request: GetOfferRequest): Offer? =
+        scheduler.run(RequestLane.CRITICAL) { delegate.getOffer(request) }
+
+    override suspend fun mapTransactionToUser(request: TransactionMappingRequest) =
+        scheduler.run(RequestLane.CRITICAL) { delegate.mapTransactionToUser(request) }
+
+    override suspend fun sendPurchaseHistory(request: PurchaseHistoryRequest) =
+        scheduler.run(RequestLane.CRITICAL) { delegate.sendPurchaseHistory(request) }
+}
@@ -0,0 +1,162 @@
+package com.monetai.sdk.network
+
+import com.monetai.sdk.models.Offer
+import okhttp3.RequestBody
+import retrofit2.HttpException
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Transport beneath ApiRequests.
+ * Separates what the SDK sends from how it reaches the backend, so the pipeline
+ * can run against an in-process fake and SDK overhead can be measured apart from network time.
+ */
+internal interface Transport {
+    suspend fun initialize(request: InitializeRequest): InitializeResponse
+
+    suspend fun createEvent(body: RequestBody)
+
+    suspend fun logViewProductItem(body: RequestBody)
+
+    /**
+     * Upload several events in one request
+     * @param body EventEnvelope batch body
+     */
+    suspend fun createEvents(body: RequestBody)
+
+    /**
+     * Upload several product impressions in one request
+     * @param body EventEnvelope batch body
+     */
+    suspend fun logViewProductItems(body: RequestBody)
+
+    /**
+     * @return Offer response, or null if the server returned no offer
+     */
+    suspend fun getOffer(request: GetOfferRequest): Offer?
+
+    suspend fun mapTransactionToUser(request: TransactionMappingRequest)
+
+    suspend fun sendPurchaseHistory(request: PurchaseHistoryRequest)
+}
+
+/**
+ * Transport over OkHttp/Retrofit.
+ * With an [offerCache], offer requests are conditional: the ETag of the last response is sent
+ * in the request body, and a 304 answer is served from the cache, keyed by the request without its etag.
+ * The backend does not read the etag field yet, so the SDK's transport runs without a cache.
+ */
+internal class RetrofitTransport(
+    private val apiService: ApiService,
+    private val offerCache: ValidatorCache<GetOfferRequest, Offer>? = null
+) : Transport {
+
+    companion object {
+        private const val HTTP_NOT_MODIFIED = 304
+
+        // Offers feed a paywall; do not let them wait out the client-wide 30 s timeouts
+        private const val OFFER_TIMEOUT_MS = 10_000L
+    }
+
+    override suspend fun initialize(request: InitializeRequest): InitializeResponse {
+        return apiService.initialize(request)
+    }
+
+    override suspend fun createEvent(body: RequestBody) {
+        apiService.createEvent(body)
+    }
+
+    override suspend fun logViewProductItem(body: RequestBody) {
+        apiService.logViewProductItem(body)
+    }
+
+    override suspend fun createEvents(body: RequestBody) {
+        apiService.createEvents(body)
+    }
+
+    override suspend fun logViewProductItems(body: RequestBody) {
+        apiService.logViewProductItems(body)
+    }
+
+    override suspend fun getOffer(request: GetOfferRequest): Offer? {
+        val cached = offerCache?.get(request)
+        val response = apiService.getOffer(request.copy(etag = cached?.etag), CallTimeout(OFFER_TIMEOUT_MS))
+
+        if (response.code() == HTTP_NOT_MODIFIED && cached != null) {
+            return cached.value
+        }
+        if (!response.isSuccessful) {
+            throw HttpException(response)
+        }
+
+        val offer = response.body()
+        offerCache?.put(request, response.headers().get("ETag"), offer)
+        return offer
+    }
+
+    override suspend fun mapTransactionToUser(request: TransactionMappingRequest) {
+        apiService.mapTransactionToUser(request)
+    }
+
+    override suspend fun sendPurchaseHistory(request: PurchaseHistoryRequest) {
+        apiService.sendPurchaseHistory(request)
+    }
+}
+
+/**
+ * In-process transport that answers immediately without touching the network.
+ * Counts what it receives, for benchmarks and tests of the SDK's own overhead.
+ */
+internal class InMemoryTransport(
+    private val initializeResponse: InitializeResponse = InitializeResponse(
+        organization_id = 0,
+        platform = "android",
+        version = "",
+        server_timestamp = 0L
+    ),
+    private val offerResponse: Offer? = null
+) : Transport {
+
+    val events = AtomicLong()
+    val viewProductItems = AtomicLong()
+    val batches = AtomicLong()
+    val offers = AtomicLong()
+    val mappings = AtomicLong()
+    val bytes = AtomicLong()
+
+    override suspend fun initialize(request: InitializeRequest): InitializeResponse {
+        return initializeResponse.copy(server_timestamp = System.currentTimeMillis())
+    }
+
+    override suspend fun createEvent(body: RequestBody) {
+        events.incrementAndGet()
+        bytes.addAndGet(body.contentLength())
+    }
+
+    override suspend fun logViewProductItem(body: RequestBody) {
+        viewProductItems.incrementAndGet()
+        bytes.addAndGet(body.contentLength())
+    }
+
+    override suspend fun createEvents(body: RequestBody) {
+        batches.incrementAndGet()
+        bytes.addAndGet(body.contentLength())
+    }
+
+    override suspend fun logViewProductItems(body: RequestBody) {
+        batches.incrementAndGet()
+        bytes.addAndGet(body.contentLength())
+    }
+
+    override suspend fun getOffer(request: GetOfferRequest): Offer? {
+        offers.incrementAndGet()
+        return offerResponse
+    }
+
+    override suspend fun mapTransactionToUser(request: TransactionMappingRequest) {
+        mappings.incrementAndGet()
+    }
+
+    override suspend fun sendPurchaseHistory(request: PurchaseHistoryRequest) {
+        mappings.addAndGet(request.purchases.size.toLong())
+    }
+}
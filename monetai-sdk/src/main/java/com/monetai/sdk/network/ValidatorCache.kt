@@ -0,0 +1,29 @@
+package com.monetai.sdk.network
+
+/**
+ * Last response per request together with its validator (ETag).
+ * The validator is sent back with the next request; a 304 answer means the cached value is still current.
+ * Bounded LRU, in memory only.
+ */
+internal class ValidatorCache<K, V>(private val maxEntries: Int = 32) {
+    class Entry<V>(val etag: String, val value: V)
+
+    private val entries = object : LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<K, Entry<V>>): Boolean = size > maxEntries
+    }
+
+    fun get(key: K): Entry<V>? = synchronized(entries) { entries[key] }
+
+    /**
+     * Store a fresh response; a response without a validator drops the cached entry
+     */
+    fun put(key: K, etag: String?, value: V?) {
+        synchronized(entries) {
+            if (etag == null || value == null) {
+                entries.remove(key)
+            } else {
+                entries[key] = Entry(etag, value)
+            }
+        }
+    }
+}
@@ -19,7 +19,16 @@ object DateTimeHelper {
      * @return ISO 8601 formatted string
      */
     fun formatToISO8601(date: Date): String {
-        val instant = Instant.ofEpochMilli(date.time)
+        return formatToISO8601(date.time)
+    }
+
+    /**
+     * Format epoch milliseconds to ISO 8601 string with local timezone
+     * @param epochMillis Milliseconds since the epoch
+     * @return ISO 8601 formatted string
+     */
+    fun formatToISO8601(epochMillis: Long): String {
+        val instant = Instant.ofEpochMilli(epochMillis)
         val zonedDateTime = instant.atZone(ZoneId.systemDefault())
         return isoFormatter.format(zonedDateTime)
     }
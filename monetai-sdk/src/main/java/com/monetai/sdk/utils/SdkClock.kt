@@ -0,0 +1,14 @@
+package com.monetai.sdk.utils
+
+import android.os.SystemClock
+
+/**
+ * Monotonic clock behind the SDK's timers (circuit breakers, rate limits, caches, scheduling).
+ * Reads SystemClock.elapsedRealtime(); JVM tests, where Android stubs return 0, set another [source].
+ */
+internal object SdkClock {
+    @Volatile
+    var source: () -> Long = { SystemClock.elapsedRealtime() }
+
+    fun elapsedRealtime(): Long = source()
+}
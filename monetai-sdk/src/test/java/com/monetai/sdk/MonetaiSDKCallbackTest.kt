@@ -0,0 +1,109 @@
+package com.monetai.sdk
+
+import com.monetai.sdk.models.CallbackDispatch
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.models.OfferProductDetails
+import com.monetai.sdk.models.OfferResult
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.delay
+
+/**
+ * Completion callbacks of MonetaiSDK's callback and Java APIs
+ */
+class MonetaiSDKCallbackTest {
+
+    private val sdk = MonetaiSDK.shared
+    private val mainPosts = AtomicInteger()
+    private lateinit var originalDispatcher: CallbackDispatcher
+
+    @Before
+    fun setUp() {
+        originalDispatcher = sdk.callbackDispatcher
+        // Stands in for the main looper, which JVM tests do not have
+        sdk.callbackDispatcher = CallbackDispatcher(mainExecutor = Executor { mainPosts.incrementAndGet(); it.run() })
+    }
+
+    @After
+    fun tearDown() {
+        sdk.reset()
+        sdk.callbackDispatcher = originalDispatcher
+    }
+
+    @Test
+    fun onlyMainDispatchCallbacksArePostedToTheMainLooper() {
+        val offer = Offer(agentId = 1, agentName = "agent", products = emptyList())
+        val delivered = CountDownLatch(8)
+        val executed = AtomicInteger()
+        val executor = Executor { executed.incrementAndGet(); it.run() }
+        val java = MonetaiSDKJava.getShared()
+
+        // Default dispatch: one main-looper post per callback
+        sdk.getOffer(1) { _, _ -> delivered.countDown() }
+        sdk.getOfferProducts(offer) { _, _ -> delivered.countDown() }
+        // Executor and immediate dispatch never touch the main looper
+        java.getOffer(1, executor, object : MonetaiSDKJava.OfferCallback {
+            override fun onResult(offer: Offer?, error: Exception?) = delivered.countDown()
+        })
+        java.getOffer(1, 100L, executor, object : MonetaiSDKJava.OfferResultCallback {
+            override fun onResult(result: OfferResult?, error: Exception?) = delivered.countDown()
+        })
+        java.getOfferProducts(offer, executor, object : MonetaiSDKJava.OfferProductsCallback {
+            override fun onResult(products: List<OfferProductDetails>?, error: Exception?) = delivered.countDown()
+        })
+        sdk.getOffer(1, CallbackDispatch.IMMEDIATE) { _, _ -> delivered.countDown() }
+        sdk.setCallbackDispatch(CallbackDispatch.IMMEDIATE)
+        sdk.getOffer(1) { _, _ -> delivered.countDown() }
+        sdk.getOfferProducts(offer) { _, _ -> delivered.countDown() }
+        // Logging has no callback at all
+        repeat(1_000) { sdk.logEvent("tap") }
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS))
+        assertEquals(2, mainPosts.get())
+        assertEquals(2L, sdk.mainThreadCallbacks)
+        assertEquals(3, executed.get())
+    }
+
+    @Test
+    fun resultIsReportedOnceWhenCancelledDuringCallback() {
+        val results = CopyOnWriteArrayList<Pair<String?, Exception?>>()
+        val done = CountDownLatch(1)
+
+        val job = sdk.launchForResult("failed", { "value" }) { result, error ->
+            results.add(result to error)
+            // The host resets the SDK from inside its completion handler
+            sdk.reset()
+            done.countDown()
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS))
+        while (!job.isCompleted) Thread.sleep(1)
+        assertEquals(listOf<Pair<String?, Exception?>>("value" to null), results)
+    }
+
+    @Test
+    fun cancellationBeforeCompletionIsReportedOnce() {
+        val results = CopyOnWriteArrayList<Pair<String?, Exception?>>()
+        val job = sdk.launchForResult("failed", { delay(10_000); "value" }) { result, error ->
+            results.add(result to error)
+        }
+
+        sdk.reset()
+        while (!job.isCompleted) Thread.sleep(1)
+        Thread.sleep(50)
+
+        assertEquals(1, results.size)
+        assertNull(results[0].first)
+        assertTrue(results[0].second is CancellationException)
+    }
+}
@@ -0,0 +1,129 @@
+package com.monetai.sdk
+
+import com.monetai.sdk.network.ApiClient
+import com.monetai.sdk.network.Transport
+import com.monetai.sdk.testing.FakeTransport
+import com.monetai.sdk.testing.PerfResults
+import com.monetai.sdk.testing.PerformanceTests
+import com.monetai.sdk.testing.TestContext
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import okhttp3.RequestBody
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import java.util.TimeZone
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+/**
+ * The SDK runs on a bounded view of Dispatchers.IO: an event storm must not take
+ * the IO threads the host app needs for its own disk and network work.
+ */
+class MonetaiSDKDispatcherTest {
+
+    private val sdk = MonetaiSDK.shared
+    private lateinit var transport: BlockingTransport
+    private lateinit var originalTransport: Transport
+
+    @Before
+    fun setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"))
+        sdk.platformServicesEnabled = false
+        sdk.reset()
+        originalTransport = ApiClient.transport
+        transport = BlockingTransport()
+        ApiClient.transport = transport
+    }
+
+    @After
+    fun tearDown() {
+        sdk.reset()
+        ApiClient.transport = originalTransport
+        sdk.platformServicesEnabled = true
+    }
+
+    @Test
+    fun eventStormUsesAtMostFourSdkThreads() = runBlocking {
+        sdk.awaitInitialize(TestContext(), "sdk-key", "storm-user")
+        storm()
+        while (sdk.eventStats.buffered) {
+            Thread.sleep(10)
+        }
+
+        assertTrue("SDK used ${transport.maxConcurrent.get()} threads", transport.maxConcurrent.get() <= 4)
+    }
+
+    @Test
+    @Category(PerformanceTests::class)
+    fun hostIoWorkIsNotStarvedByAnEventStorm() = runBlocking {
+        sdk.awaitInitialize(TestContext(), "sdk-key", "storm-user")
+        val baseline = hostRound()
+        storm()
+
+        // Host IO work while the SDK drains the storm
+        val rounds = ArrayList<Long>()
+        while (sdk.eventStats.buffered || rounds.size < 20) {
+            rounds.add(hostRound())
+        }
+        val slowest = rounds.max()
+
+        PerfResults.write(
+            this@MonetaiSDKDispatcherTest,
+            "Host IO round: baseline ${baseline}ms, slowest ${slowest}ms over ${rounds.size} rounds during the storm; " +
+                "SDK used at most ${transport.maxConcurrent.get()} threads, sent ${transport.events.size} events"
+        )
+        assertTrue("host IO round took ${slowest}ms during the storm", slowest < 250)
+    }
+
+    /**
+     * 100k events from four threads; every send blocks its thread like a synchronous network call
+     */
+    private fun storm() {
+        val producers = (0 until 4).map {
+            thread {
+                repeat(25_000) { i -> sdk.logEvent("storm", mapOf("i" to i)) }
+            }
+        }
+        producers.forEach { it.join() }
+    }
+
+    /**
+     * 32 concurrent blocking IO tasks of 5 ms on Dispatchers.IO
+     * @return Wall time of the round in milliseconds
+     */
+    private suspend fun hostRound(): Long {
+        val started = System.nanoTime()
+        runBlocking(Dispatchers.IO) {
+            (0 until 32).map { async(Dispatchers.IO) { Thread.sleep(5) } }.awaitAll()
+        }
+        return (System.nanoTime() - started) / 1_000_000
+    }
+
+    /**
+     * Blocks its thread for every upload, like a synchronous network call
+     */
+    private class BlockingTransport : FakeTransport() {
+        val maxConcurrent = AtomicInteger()
+        private val concurrent = AtomicInteger()
+
+        override suspend fun createEvent(body: RequestBody) = blocking { super.createEvent(body) }
+
+        override suspend fun createEvents(body: RequestBody) = blocking { super.createEvents(body) }
+
+        private inline fun blocking(record: () -> Unit) {
+            val now = concurrent.incrementAndGet()
+            maxConcurrent.accumulateAndGet(now, ::maxOf)
+            try {
+                Thread.sleep(1)
+                record()
+            } finally {
+                concurrent.decrementAndGet()
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.monetai.sdk
+
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.network.ApiClient
+import com.monetai.sdk.network.GetOfferRequest
+import com.monetai.sdk.network.InitializeRequest
+import com.monetai.sdk.network.InitializeResponse
+import com.monetai.sdk.network.Transport
+import com.monetai.sdk.testing.FakeTransport
+import com.monetai.sdk.testing.TestContext
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeoutOrNull
+import okhttp3.RequestBody
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.TimeZone
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+/**
+ * Session handling of MonetaiSDK under concurrent logging: events are sent with the
+ * identity they were logged under, and re-initializing the same user loses nothing.
+ */
+class MonetaiSDKSessionTest {
+
+    private val sdk = MonetaiSDK.shared
+    private val context = TestContext()
+    private lateinit var transport: RecordingTransport
+    private lateinit var originalTransport: Transport
+
+    @Before
+    fun setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"))
+        sdk.platformServicesEnabled = false
+        sdk.reset()
+        originalTransport = ApiClient.transport
+        transport = RecordingTransport()
+        ApiClient.transport = transport
+    }
+
+    @After
+    fun tearDown() {
+        sdk.reset()
+        ApiClient.transport = originalTransport
+        sdk.platformServicesEnabled = true
+    }
+
+    @Test
+    fun eventsAreNeverSentUnderAnotherUser() = runBlocking {
+        val producers = 4
+        val eventsPerProducer = 500
+
+        for (round in 0 until 20) {
+            val userId = "user-$round"
+            sdk.awaitInitialize(context, SDK_KEY, userId)
+
+            // Log from several threads, then switch users while those sends are still in flight
+            val start = CountDownLatch(1)
+            val threads = (0 until producers).map {
+                thread {
+                    start.await()
+                    repeat(eventsPerProducer) { sdk.logEvent("stress", mapOf("loggedBy" to userId)) }
+                }
+            }
+            start.countDown()
+            threads.forEach { it.join() }
+        }
+
+        sdk.awaitInitialize(context, SDK_KEY, "user-final")
+        sdk.logEvent("stress", mapOf("loggedBy" to "user-final"))
+        awaitDelivered { transport.loggedBy.any { it.first == "user-final" } }
+
+        assertTrue("some events were delivered", transport.events.isNotEmpty())
+        val mismatched = transport.loggedBy.filter { it.first != it.second }
+        assertEquals("events sent with another user's identity: ${mismatched.take(5)}", 0, mismatched.size)
+    }
+
+    @Test
+    fun reinitializingSameUserDeliversEveryEvent() = runBlocking {
+        val producers = 4
+        val eventsPerProducer = 1_000
+        sdk.awaitInitialize(context, SDK_KEY, "same-user")
+
+        val start = CountDownLatch(1)
+        val threads = (0 until producers).map {
+            thread {
+                start.await()
+                repeat(eventsPerProducer) { sdk.logEvent("stress", mapOf("loggedBy" to "same-user")) }
+            }
+        }
+        start.countDown()
+        // Token rotation: the host initializes again while events keep coming
+        repeat(50) {
+            sdk.awaitInitialize(context, SDK_KEY, "same-user")
+        }
+        threads.forEach { it.join() }
+
+        awaitDelivered { transport.events.size >= producers * eventsPerProducer }
+        assertEquals(producers * eventsPerProducer, transport.events.size)
+        assertTrue(transport.loggedBy.all { it.first == "same-user" })
+    }
+
+    @Test
+    fun retryAfterFailedInitializeDeliversEarlierEvents() = runBlocking {
+        transport.failInitialize.set(1)
+        try {
+            sdk.awaitInitialize(context, SDK_KEY, "retry-user")
+            throw AssertionError("first initialize should fail")
+        } catch (e: IllegalStateException) {
+            // expected
+        }
+        repeat(10) { sdk.logEvent("afterFailure", mapOf("loggedBy" to "retry-user")) }
+
+        sdk.awaitInitialize(context, SDK_KEY, "retry-user")
+
+        awaitDelivered { transport.events.size >= 10 }
+        assertEquals(10, transport.events.size)
+    }
+
+    @Test
+    fun initializeReplacedByAnotherUserFailsAsSuperseded() = runBlocking {
+        val gate = CompletableDeferred<Unit>()
+        transport.initializeGate = gate
+        val first = async(Dispatchers.IO) { runCatching { sdk.awaitInitialize(context, SDK_KEY, "first-user") } }
+        while (transport.initializeRequests.isEmpty()) delay(1)
+
+        val second = async(Dispatchers.IO) { sdk.awaitInitialize(context, SDK_KEY, "second-user") }
+        gate.complete(Unit)
+
+        assertEquals("second-user", second.await().userId)
+        val error = first.await().exceptionOrNull()
+        assertTrue("first initialize failed with $error", error is MonetaiError.Superseded)
+        assertEquals("second-user", sdk.getUserId())
+    }
+
+    @Test
+    fun offerFetchedBeforeAUserSwitchIsNotCachedForTheNextUser() = runBlocking {
+        sdk.awaitInitialize(context, SDK_KEY, "first-user")
+        transport.offer = Offer(agentId = 1, agentName = "first-user-agent", products = emptyList())
+        val gate = CompletableDeferred<Unit>()
+        transport.offerGate = gate
+
+        val fetch = async(Dispatchers.IO) { sdk.offer(PROMOTION_ID) }
+        while (transport.offerRequests.isEmpty()) delay(1)
+        sdk.awaitInitialize(context, SDK_KEY, "second-user")
+        gate.complete(Unit)
+
+        // The caller still gets its answer, but the cache belongs to the new user
+        assertEquals("first-user-agent", fetch.await()?.agentName)
+        assertNull(withTimeoutOrNull(100) { sdk.offerUpdates(PROMOTION_ID).first() })
+    }
+
+    private suspend fun awaitDelivered(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + 10_000
+        while (!condition()) {
+            if (System.currentTimeMillis() > deadline) throw AssertionError("events were not delivered in time")
+            delay(10)
+        }
+    }
+
+    private val FakeTransport.loggedBy: List<Pair<String, String?>>
+        get() = events.map { it.get("userId").asString to it.getAsJsonObject("params")?.get("loggedBy")?.asString }
+
+    /**
+     * Records events after a short network delay; initialize fails while [failInitialize] is positive.
+     * Initialize and offer responses are held back until [initializeGate] and [offerGate] complete
+     */
+    private class RecordingTransport : FakeTransport() {
+        val failInitialize = AtomicInteger()
+        @Volatile
+        var initializeGate: CompletableDeferred<Unit>? = null
+        @Volatile
+        var offerGate: CompletableDeferred<Unit>? = null
+
+        override suspend fun initialize(request: InitializeRequest): InitializeResponse {
+            delay(2)
+            if (failInitialize.getAndDecrement() > 0) throw IllegalStateException("initialize failed")
+            val response = super.initialize(request)
+            initializeGate?.await()
+            return response
+        }
+
+        override suspend fun getOffer(request: GetOfferRequest): Offer? {
+            val offer = super.getOffer(request)
+            offerGate?.await()
+            return offer
+        }
+
+        override suspend fun createEvent(body: RequestBody) {
+            delay(1)
+            super.createEvent(body)
+        }
+
+        override suspend fun createEvents(body: RequestBody) {
+            delay(1)
+            super.createEvents(body)
+        }
+    }
+
+    private companion object {
+        const val SDK_KEY = "test-sdk-key"
+        const val PROMOTION_ID = 7
+    }
+}
@@ -0,0 +1,34 @@
+package com.monetai.sdk.benchmarks
+
+import com.monetai.sdk.MonetaiSDK
+import com.monetai.sdk.network.ApiClient
+import com.monetai.sdk.network.InMemoryTransport
+import com.monetai.sdk.network.Transport
+import com.monetai.sdk.testing.TestContext
+import kotlinx.coroutines.runBlocking
+
+/**
+ * MonetaiSDK.shared set up for benchmarks: initialized against an in-process transport,
+ * so logged events go through the whole pipeline and are discarded instead of sent
+ */
+object BenchmarkSdk {
+    private var originalTransport: Transport? = null
+
+    @JvmStatic
+    fun start(): MonetaiSDK {
+        val sdk = MonetaiSDK.shared
+        originalTransport = ApiClient.transport
+        ApiClient.transport = InMemoryTransport()
+        sdk.platformServicesEnabled = false
+        runBlocking { sdk.awaitInitialize(TestContext(), "benchmark-sdk-key", "benchmark-user") }
+        return sdk
+    }
+
+    @JvmStatic
+    fun stop() {
+        val sdk = MonetaiSDK.shared
+        sdk.reset()
+        originalTransport?.let { ApiClient.transport = it }
+        sdk.platformServicesEnabled = true
+    }
+}
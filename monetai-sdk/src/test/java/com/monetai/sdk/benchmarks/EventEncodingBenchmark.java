@@ -0,0 +1,70 @@
+package com.monetai.sdk.benchmarks;
+
+import com.google.gson.Gson;
+import com.monetai.sdk.models.EventEncoding;
+import com.monetai.sdk.models.EventParams;
+import com.monetai.sdk.network.EventEnvelope;
+import okhttp3.RequestBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding one event body as JSON or CBOR.
+ * Run with -prof gc to compare allocation per body (gc.alloc.rate.norm);
+ * the body size of each encoding is printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventEncodingBenchmark {
+
+    private static final String CREATED_AT = "2024-01-01T00:00:00.000Z";
+
+    @Param({"JSON", "CBOR"})
+    public String encoding;
+
+    private EventEnvelope envelope;
+    private EventParams eventParams;
+    private Map<String, Object> map;
+
+    @Setup
+    public void setUp() throws IOException {
+        envelope = new EventEnvelope("sdk-key", "user-1", new Gson(), EventEncoding.valueOf(encoding));
+        eventParams = new EventParams()
+            .putString("screen", "paywall")
+            .putInt("position", 3)
+            .putLong("elapsed_ms", 1_250L)
+            .putDouble("price", 9.99)
+            .putBoolean("trial", false);
+        map = new HashMap<>(eventParams.toMap());
+        System.out.println(encoding + " body: "
+            + envelope.createEventBody("purchase_tap", eventParams, CREATED_AT, 1.0).contentLength() + " bytes");
+    }
+
+    @Benchmark
+    public RequestBody encodeEventParams() {
+        return envelope.createEventBody("purchase_tap", eventParams, CREATED_AT, 1.0);
+    }
+
+    @Benchmark
+    public RequestBody encodeMap() {
+        return envelope.createEventBody("purchase_tap", map, CREATED_AT, 1.0);
+    }
+}
@@ -0,0 +1,80 @@
+package com.monetai.sdk.benchmarks;
+
+import com.google.gson.Gson;
+import com.monetai.sdk.models.EventEncoding;
+import com.monetai.sdk.models.EventParams;
+import com.monetai.sdk.network.EventEnvelope;
+import okhttp3.RequestBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serializing the params of one event: typed EventParams against
+ * the boxed Map<String, Any> callers pass otherwise.
+ * Run with -prof gc to compare allocation per event (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventParamsBenchmark {
+
+    private static final String CREATED_AT = "2024-01-01T00:00:00.000Z";
+
+    private final EventEnvelope envelope =
+        new EventEnvelope("sdk-key", "user-1", new Gson(), EventEncoding.JSON);
+
+    private int counter;
+
+    @Benchmark
+    public EventParams buildEventParams() {
+        return eventParams(counter++);
+    }
+
+    @Benchmark
+    public Map<String, Object> buildMap() {
+        return map(counter++);
+    }
+
+    @Benchmark
+    public RequestBody serializeEventParams() {
+        return envelope.createEventBody("purchase_tap", eventParams(counter++), CREATED_AT, 1.0);
+    }
+
+    @Benchmark
+    public RequestBody serializeMap() {
+        return envelope.createEventBody("purchase_tap", map(counter++), CREATED_AT, 1.0);
+    }
+
+    private static EventParams eventParams(int i) {
+        return new EventParams()
+            .putString("screen", "paywall")
+            .putInt("position", i)
+            .putLong("elapsed_ms", 1_000L + i)
+            .putDouble("price", 9.99 + i)
+            .putBoolean("trial", (i & 1) == 0);
+    }
+
+    private static Map<String, Object> map(int i) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("screen", "paywall");
+        params.put("position", i);
+        params.put("elapsed_ms", 1_000L + i);
+        params.put("price", 9.99 + i);
+        params.put("trial", (i & 1) == 0);
+        return params;
+    }
+}
@@ -0,0 +1,72 @@
+package com.monetai.sdk.benchmarks;
+
+import com.monetai.sdk.events.EventRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of logging one event into the ingestion ring buffer, with a consumer
+ * thread draining it the way the pipeline worker does.
+ * Run with -prof gc to check that producers allocate nothing per event.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventRingBufferBenchmark {
+
+    private static final String EVENT_NAME = "tap_product";
+    private static final EventRingBuffer.Sink DISCARD = (kind, name, payload, timestamp, session, sampleRate) -> { };
+
+    private EventRingBuffer buffer;
+    private Thread consumer;
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        buffer = new EventRingBuffer(8192);
+        running = true;
+        consumer = new Thread(() -> {
+            while (running) {
+                if (buffer.drain(DISCARD, 64) == 0) {
+                    Thread.yield();
+                }
+            }
+        }, "ring-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        consumer.join();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean offerSingleProducer() {
+        return buffer.offer(0, EVENT_NAME, null, 1_700_000_000_000L, 1L, 1.0);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean offerFourProducers() {
+        return buffer.offer(0, EVENT_NAME, null, 1_700_000_000_000L, 1L, 1.0);
+    }
+}
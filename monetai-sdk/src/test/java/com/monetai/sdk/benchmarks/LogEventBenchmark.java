@@ -0,0 +1,71 @@
+package com.monetai.sdk.benchmarks;
+
+import com.monetai.sdk.MonetaiSDK;
+import com.monetai.sdk.models.EventParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caller-side cost of MonetaiSDK.logEvent: aggregation check, sampling, session lookup
+ * and the ring buffer write, with the SDK's worker draining to an in-process transport.
+ * Run with -prof gc to check the allocation per call (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogEventBenchmark {
+
+    private static final String EVENT_NAME = "tap_product";
+    private static final String AGGREGATED_EVENT_NAME = "scroll_feed";
+
+    private MonetaiSDK sdk;
+    private EventParams params;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sdk = BenchmarkSdk.start();
+        params = new EventParams().putString("screen", "paywall").putInt("position", 3);
+        sdk.setEventAggregation(AGGREGATED_EVENT_NAME, Collections.singletonList("screen"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkSdk.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void logEventSingleThread() {
+        sdk.logEvent(EVENT_NAME, params);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void logEventFourThreads() {
+        sdk.logEvent(EVENT_NAME, params);
+    }
+
+    // Counted in memory instead of buffered; should not allocate for a known value combination
+    @Benchmark
+    @Threads(1)
+    public void logAggregatedEvent() {
+        sdk.logEvent(AGGREGATED_EVENT_NAME, params);
+    }
+}
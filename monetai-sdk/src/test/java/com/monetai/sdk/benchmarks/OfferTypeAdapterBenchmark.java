@@ -0,0 +1,77 @@
+package com.monetai.sdk.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.monetai.sdk.models.Offer;
+import com.monetai.sdk.models.OfferProduct;
+import com.monetai.sdk.network.OfferTypeAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and writing a large offer with the streaming OfferTypeAdapter
+ * against gson's reflective adapter.
+ * Run with -prof gc to compare allocation per offer (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfferTypeAdapterBenchmark {
+
+    @Param({"500"})
+    public int products;
+
+    private final Gson streaming = new GsonBuilder()
+        .registerTypeAdapter(Offer.class, new OfferTypeAdapter())
+        .create();
+    private final Gson reflective = new Gson();
+
+    private Offer offer;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        List<OfferProduct> list = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            list.add(new OfferProduct("Product " + i, "product_" + i + ":base", (i % 50) / 100.0, i % 7 == 0));
+        }
+        offer = new Offer(42, "Large offer", list);
+        json = streaming.toJson(offer, Offer.class);
+    }
+
+    @Benchmark
+    public Offer readStreaming() {
+        return streaming.fromJson(json, Offer.class);
+    }
+
+    @Benchmark
+    public Offer readReflective() {
+        return reflective.fromJson(json, Offer.class);
+    }
+
+    @Benchmark
+    public String writeStreaming() {
+        return streaming.toJson(offer, Offer.class);
+    }
+
+    @Benchmark
+    public String writeReflective() {
+        return reflective.toJson(offer, Offer.class);
+    }
+}
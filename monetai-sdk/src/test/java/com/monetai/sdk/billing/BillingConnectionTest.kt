@@ -0,0 +1,179 @@
+package com.monetai.sdk.billing
+
+import com.android.billingclient.api.BillingClient
+import com.android.billingclient.api.BillingClientStateListener
+import com.android.billingclient.api.BillingResult
+import com.android.billingclient.api.ProductDetailsResponseListener
+import com.android.billingclient.api.QueryProductDetailsParams
+import com.monetai.sdk.testing.TestContext
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * BillingConnection against a fake gateway whose service keeps dropping
+ */
+class BillingConnectionTest {
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+    private val callbacks = Executors.newSingleThreadExecutor()
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+        callbacks.shutdownNow()
+    }
+
+    @Test
+    fun reconnectsThroughFlappingWithOneAttemptAtATime() = runBlocking {
+        val flaps = 60
+        val gateway = FlappingGateway(flaps)
+        val states = CopyOnWriteArrayList<BillingConnectionState>()
+        val connection = newConnection(gateway) { states.add(it) }
+
+        connection.start()
+        // Connected states in between are short-lived; wait for the attempt that stays up
+        withTimeout(10_000) {
+            while (gateway.attempts.get() <= flaps) delay(1)
+            connection.awaitConnected()
+        }
+        callbacks.submit {}.get(5, TimeUnit.SECONDS)
+
+        // Every lost attempt caused exactly one new attempt, even when a failed setup was also reported as a disconnect
+        assertEquals(flaps + 1, gateway.attempts.get())
+        assertEquals("overlapping connection attempts", 0, gateway.overlaps.get())
+        assertEquals(BillingConnectionState.CONNECTED, states.last())
+
+        // Late callbacks of superseded attempts are ignored
+        gateway.listeners.dropLast(1).forEach { it.onBillingServiceDisconnected() }
+        assertEquals(BillingConnectionState.CONNECTED, connection.currentState)
+        assertEquals(flaps + 1, gateway.attempts.get())
+
+        connection.stop()
+        assertEquals(1, gateway.ends.get())
+    }
+
+    @Test
+    fun stopDuringFlappingEndsReconnecting() = runBlocking {
+        val gateway = FlappingGateway(flaps = Int.MAX_VALUE)
+        val connection = newConnection(gateway)
+
+        connection.start()
+        while (gateway.attempts.get() < 20) Thread.sleep(1)
+        connection.stop()
+        callbacks.submit {}.get(5, TimeUnit.SECONDS)
+        val attempts = gateway.attempts.get()
+        Thread.sleep(100)
+
+        assertEquals("no reconnect after stop", attempts, gateway.attempts.get())
+        assertEquals(BillingConnectionState.CLOSED, connection.currentState)
+        assertEquals(1, gateway.ends.get())
+        try {
+            connection.awaitConnected()
+            fail("awaitConnected should fail once closed")
+        } catch (e: IllegalStateException) {
+            // expected
+        }
+    }
+
+    @Test
+    fun startObservingAgainClosesThePreviousConnection() {
+        val gateways = mutableListOf<FlappingGateway>()
+        val manager = BillingManager(TestContext(), "sdk-key", "user", scope, null) {
+            FlappingGateway(flaps = 0, respond = false).also { gateways.add(it) }
+        }
+
+        manager.startObserving()
+        manager.startObserving()
+        assertEquals(2, gateways.size)
+        assertEquals("first connection orphaned", 1, gateways[0].ends.get())
+        assertEquals(0, gateways[1].ends.get())
+
+        manager.stopObserving()
+        assertEquals(1, gateways[1].ends.get())
+        assertTrue(gateways.all { it.attempts.get() == 1 })
+    }
+
+    private fun newConnection(
+        gateway: BillingGateway,
+        listener: BillingConnectionListener? = null
+    ): BillingConnection {
+        return BillingConnection(
+            gateway = gateway,
+            scope = scope,
+            listener = listener,
+            dispatcher = Dispatchers.Default,
+            initialBackoffMs = 1,
+            maxBackoffMs = 4
+        )
+    }
+
+    /**
+     * Drops the first [flaps] attempts in rotating ways, then stays connected
+     */
+    private inner class FlappingGateway(
+        private val flaps: Int,
+        private val respond: Boolean = true
+    ) : BillingGateway {
+        val attempts = AtomicInteger()
+        val overlaps = AtomicInteger()
+        val ends = AtomicInteger()
+        val queries = AtomicInteger()
+        val listeners = CopyOnWriteArrayList<BillingClientStateListener>()
+        private val inFlight = AtomicInteger()
+
+        override fun startConnection(listener: BillingClientStateListener) {
+            val attempt = attempts.incrementAndGet()
+            listeners.add(listener)
+            if (inFlight.getAndIncrement() != 0) overlaps.incrementAndGet()
+            if (!respond) return
+
+            callbacks.execute {
+                inFlight.decrementAndGet()
+                if (attempt > flaps) {
+                    listener.onBillingSetupFinished(result(BillingClient.BillingResponseCode.OK))
+                    return@execute
+                }
+                when (attempt % 4) {
+                    0 -> listener.onBillingServiceDisconnected()
+                    1 -> listener.onBillingSetupFinished(result(BillingClient.BillingResponseCode.SERVICE_UNAVAILABLE))
+                    2 -> {
+                        listener.onBillingSetupFinished(result(BillingClient.BillingResponseCode.OK))
+                        listener.onBillingServiceDisconnected()
+                    }
+                    else -> {
+                        listener.onBillingSetupFinished(result(BillingClient.BillingResponseCode.BILLING_UNAVAILABLE))
+                        listener.onBillingServiceDisconnected()
+                    }
+                }
+            }
+        }
+
+        override fun endConnection() {
+            ends.incrementAndGet()
+        }
+
+        override fun queryProductDetails(params: QueryProductDetailsParams, listener: ProductDetailsResponseListener) {
+            queries.incrementAndGet()
+            // Connection tests have no products; answer like a client that lost its service (no result is read)
+            callbacks.execute {
+                listener.onProductDetailsResponse(result(BillingClient.BillingResponseCode.SERVICE_DISCONNECTED), null)
+            }
+        }
+
+        private fun result(code: Int): BillingResult = BillingResult.newBuilder().setResponseCode(code).build()
+    }
+}
@@ -0,0 +1,128 @@
+package com.monetai.sdk.billing
+
+import com.android.billingclient.api.ProductDetails
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Test
+
+class ProductDetailsCacheTest {
+
+    private var now = 0L
+
+    @Test
+    fun failedQueryIsNotCachedAsUnknown() = runBlocking {
+        val queries = ArrayList<List<String>>()
+        var failing = true
+        val cache = ProductDetailsCache(
+            loader = { ids ->
+                queries.add(ids)
+                if (failing) throw IllegalStateException("Product details query failed (2)")
+                emptyList<ProductDetails>()
+            },
+            clock = { now }
+        )
+
+        try {
+            cache.get(listOf("premium"))
+            fail("query failure should propagate")
+        } catch (e: IllegalStateException) {
+            // expected
+        }
+
+        failing = false
+        assertTrue(cache.get(listOf("premium")).isEmpty())
+        assertEquals("a failure must not be remembered", 2, queries.size)
+
+        // An answer from a successful query is remembered until it expires
+        now += 60_000L
+        cache.get(listOf("premium"))
+        assertEquals(2, queries.size)
+        now += 30 * 60_000L
+        cache.get(listOf("premium"))
+        assertEquals(3, queries.size)
+    }
+
+    @Test
+    fun entriesExpireAfterTheTtl() = runBlocking {
+        val queries = ArrayList<List<String>>()
+        val cache = ProductDetailsCache(loader = { ids -> queries.add(ids); emptyList() }, ttlMs = 1_000L, clock = { now })
+
+        cache.get(listOf("premium", "basic"))
+        now = 999L
+        cache.get(listOf("premium", "basic"))
+        assertEquals(1, queries.size)
+
+        // Only the expired entry is queried again
+        cache.get(listOf("lifetime"))
+        now = 1_000L
+        cache.get(listOf("premium", "basic", "lifetime"))
+        assertEquals(listOf("premium", "basic"), queries.last())
+        assertEquals(3, queries.size)
+    }
+
+    @Test
+    fun leastRecentlyUsedEntryIsEvicted() = runBlocking {
+        val queries = ArrayList<List<String>>()
+        val cache = ProductDetailsCache(loader = { ids -> queries.add(ids); emptyList() }, maxEntries = 2, clock = { now })
+
+        cache.get(listOf("a"))
+        cache.get(listOf("b"))
+        cache.get(listOf("a"))
+        cache.get(listOf("c"))
+        assertEquals(3, queries.size)
+
+        // "b" was used least recently and made room for "c"
+        cache.get(listOf("a"))
+        assertEquals(3, queries.size)
+        cache.get(listOf("b"))
+        assertEquals(listOf("b"), queries.last())
+        assertEquals(4, queries.size)
+    }
+
+    @Test
+    fun lookupsSharingACancelledQueryQueryAgain() = runBlocking {
+        val queries = ArrayList<List<String>>()
+        val firstQuery = CompletableDeferred<Unit>()
+        val cache = ProductDetailsCache(
+            loader = { ids ->
+                queries.add(ids)
+                if (queries.size == 1) firstQuery.await()
+                emptyList()
+            },
+            clock = { now }
+        )
+
+        val starter = launch(start = CoroutineStart.UNDISPATCHED) { cache.get(listOf("premium")) }
+        val waiter = async(start = CoroutineStart.UNDISPATCHED) { cache.get(listOf("premium")) }
+        starter.cancelAndJoin()
+
+        assertTrue(waiter.await().isEmpty())
+        assertEquals(2, queries.size)
+    }
+
+    @Test
+    fun aFailedQueryFailsTheLookupsSharingIt() = runBlocking {
+        val release = CompletableDeferred<Unit>()
+        val cache = ProductDetailsCache(
+            loader = {
+                release.await()
+                throw IllegalStateException("Product details query failed (6)")
+            },
+            clock = { now }
+        )
+
+        val starter = async(start = CoroutineStart.UNDISPATCHED) { runCatching { cache.get(listOf("premium")) } }
+        val waiter = async(start = CoroutineStart.UNDISPATCHED) { runCatching { cache.get(listOf("premium")) } }
+        release.complete(Unit)
+
+        assertTrue(starter.await().exceptionOrNull() is IllegalStateException)
+        assertTrue(waiter.await().exceptionOrNull() is IllegalStateException)
+    }
+}
@@ -0,0 +1,170 @@
+package com.monetai.sdk.billing
+
+import com.monetai.sdk.network.ApiClient
+import com.monetai.sdk.network.TransactionMappingRequest
+import com.monetai.sdk.network.Transport
+import com.monetai.sdk.testing.FakeTransport
+import com.monetai.sdk.testing.TestContext
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import okhttp3.MediaType
+import okhttp3.ResponseBody
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import retrofit2.HttpException
+import retrofit2.Response
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * TransactionMappingQueue on virtual time: the coalescing window and retry backoff
+ * are advanced by the test scheduler, not waited out
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+class TransactionMappingQueueTest {
+
+    private val scope = TestScope()
+    private val context = TestContext()
+    private lateinit var transport: MappingTransport
+    private lateinit var originalTransport: Transport
+
+    @Before
+    fun setUp() {
+        originalTransport = ApiClient.transport
+        transport = MappingTransport()
+        ApiClient.transport = transport
+    }
+
+    @After
+    fun tearDown() {
+        ApiClient.transport = originalTransport
+    }
+
+    @Test
+    fun sharedQueueIsOnePerProcessAndFollowsTheLatestScope() {
+        val first = TransactionMappingQueue.shared(context, CoroutineScope(SupervisorJob() + Dispatchers.Default))
+        val queue = TransactionMappingQueue.shared(TestContext(), scope)
+        assertSame(first, queue)
+
+        // Scheduled on the latest caller's scope: nothing is sent until its scheduler runs
+        queue.enqueue(mapping("shared-token"))
+        assertTrue(transport.sent.isEmpty())
+        scope.advanceTimeBy(COALESCE_WINDOW_MS + 1)
+        assertEquals(listOf("shared-token"), transport.sent)
+    }
+
+    @Test
+    fun enqueuedMappingIsOnDiskBeforeEnqueueReturns() {
+        val queue = TransactionMappingQueue(context, scope)
+        queue.enqueue(mapping("token-1"))
+
+        assertTrue(persisted()!!.contains("token-1"))
+        assertTrue(transport.attempts.isEmpty())
+    }
+
+    @Test
+    fun purchaseReportedTwiceIsSentOnce() {
+        val queue = TransactionMappingQueue(context, scope)
+        queue.enqueue(mapping("token-1"))
+        queue.enqueue(mapping("token-1"))
+
+        scope.advanceTimeBy(COALESCE_WINDOW_MS - 1)
+        assertTrue("sent inside the coalescing window", transport.sent.isEmpty())
+        scope.advanceTimeBy(2)
+        assertEquals(listOf("token-1"), transport.sent)
+
+        queue.enqueue(mapping("token-1"))
+        scope.advanceTimeBy(10 * COALESCE_WINDOW_MS)
+        assertEquals(listOf("token-1"), transport.sent)
+    }
+
+    @Test
+    fun coalescedMappingsAreSentOnePerToken() {
+        val queue = TransactionMappingQueue(context, scope)
+        queue.enqueue(mapping("token-1"))
+        queue.enqueue(mapping("token-2"))
+        queue.enqueue(mapping("token-3"))
+        scope.advanceTimeBy(COALESCE_WINDOW_MS + 1)
+
+        assertEquals(listOf("token-1", "token-2", "token-3"), transport.mappingRequests.map { it.purchaseToken })
+        assertTrue(transport.purchaseHistoryRequests.isEmpty())
+    }
+
+    @Test
+    fun rejectedTokenIsDroppedWithoutBlockingTheOthers() {
+        transport.rejected.add("bad")
+        val queue = TransactionMappingQueue(context, scope)
+        queue.enqueue(mapping("good-1"))
+        queue.enqueue(mapping("bad"))
+        queue.enqueue(mapping("good-2"))
+
+        scope.advanceTimeBy(COALESCE_WINDOW_MS + 1)
+        assertEquals(setOf("good-1", "good-2"), transport.sent.toSet())
+
+        // Nothing is left to retry, in memory or on disk
+        scope.advanceTimeBy(60_000)
+        assertEquals(3, transport.attempts.size)
+        assertEquals("[]", persisted())
+    }
+
+    @Test
+    fun serverErrorKeepsMappingsPendingAndRetriesWithBackoff() {
+        transport.failing = true
+        val queue = TransactionMappingQueue(context, scope)
+        queue.enqueue(mapping("token-1"))
+
+        scope.advanceTimeBy(COALESCE_WINDOW_MS + 1)
+        assertEquals(1, transport.attempts.size)
+        assertTrue(persisted()!!.contains("token-1"))
+
+        // First retry after the doubled initial delay of 2 s
+        transport.failing = false
+        scope.advanceTimeBy(3_999)
+        assertEquals(1, transport.attempts.size)
+        scope.advanceTimeBy(2)
+        scope.runCurrent()
+        assertEquals(listOf("token-1"), transport.sent)
+        assertEquals("[]", persisted())
+    }
+
+    private fun persisted(): String? {
+        return context.getSharedPreferences("com.monetai.sdk.transaction_mappings", 0).getString("pending", null)
+    }
+
+    private fun mapping(token: String) = PendingMapping(token, "com.monetai.sdk.test", "sdk-key", "user")
+
+    /**
+     * Accepts mappings unless the token is rejected (400) or the server is failing (503)
+     */
+    private class MappingTransport : FakeTransport() {
+        val sent = CopyOnWriteArrayList<String>()
+        val attempts = CopyOnWriteArrayList<String>()
+        val rejected = CopyOnWriteArrayList<String>()
+        @Volatile
+        var failing = false
+
+        override suspend fun mapTransactionToUser(request: TransactionMappingRequest) {
+            super.mapTransactionToUser(request)
+            attempts.add(request.purchaseToken)
+            if (failing) throw HttpException(error(503))
+            if (request.purchaseToken in rejected) throw HttpException(error(400))
+            sent.add(request.purchaseToken)
+        }
+
+        private fun error(code: Int): Response<Unit> {
+            return Response.error(code, ResponseBody.create(MediaType.get("application/json"), "{}"))
+        }
+    }
+
+    private companion object {
+        const val COALESCE_WINDOW_MS = 500L
+    }
+}
@@ -0,0 +1,113 @@
+package com.monetai.sdk.events
+
+import com.monetai.sdk.models.EventParams
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class EventAggregatorTest {
+
+    private val aggregator = EventAggregator()
+    private val emitted = ArrayList<Summary>()
+    private val sink = EventAggregator.Sink { name, params, timestamp -> emitted.add(Summary(name, params, timestamp)) }
+
+    @Test
+    fun unregisteredEventsAreNotFolded() {
+        assertFalse(aggregator.fold("tap", null, 0L))
+        aggregator.register("scroll", emptyList())
+        assertFalse(aggregator.fold("tap", null, 0L))
+    }
+
+    @Test
+    fun countsAreSplitByParameterValuesPerMinute() {
+        aggregator.register("tap", listOf("screen"))
+        repeat(3) { assertTrue(aggregator.fold("tap", mapOf("screen" to "home", "ignored" to it), MINUTE + 5)) }
+        assertTrue(aggregator.fold("tap", EventParams().putString("screen", "shop"), MINUTE + 10))
+        assertTrue(aggregator.fold("tap", null, MINUTE + 20))
+        assertTrue(aggregator.fold("tap", mapOf("screen" to "home"), 2 * MINUTE))
+
+        // Only finished minutes are flushed
+        aggregator.flush(2 * MINUTE + 1, sink)
+        assertEquals(1, emitted.size)
+        val summary = emitted.single()
+        assertEquals("tap", summary.eventName)
+        assertEquals(MINUTE, summary.timestamp)
+        assertEquals(true, summary.params["aggregated"])
+        assertEquals(MINUTE, summary.params["bucketStart"])
+        assertEquals(60L, summary.params["bucketSeconds"])
+        assertEquals(5L, summary.params["count"])
+        assertEquals(
+            listOf(
+                mapOf("screen" to "home", "count" to 3L),
+                mapOf("screen" to "shop", "count" to 1L),
+                mapOf("screen" to "", "count" to 1L)
+            ),
+            summary.params["counts"]
+        )
+
+        // A flushed minute is not sent again; the next one is
+        emitted.clear()
+        aggregator.flush(3 * MINUTE, sink)
+        assertEquals(listOf(2 * MINUTE), emitted.map { it.timestamp })
+        assertEquals(1L, emitted.single().params["count"])
+    }
+
+    @Test
+    fun eventWithoutKeysIsCountedWithoutBreakdown() {
+        aggregator.register("heartbeat", emptyList())
+        repeat(4) { aggregator.fold("heartbeat", mapOf("i" to it), 0L) }
+        aggregator.flushAll(sink)
+
+        assertEquals(4L, emitted.single().params["count"])
+        assertFalse(emitted.single().params.containsKey("counts"))
+    }
+
+    @Test
+    fun groupLimitIsPerMinuteAndReleasedByFlush() {
+        aggregator.register("tap", listOf("id"))
+        repeat(1024) { assertTrue(aggregator.fold("tap", mapOf("id" to it), 0L)) }
+        // A known combination still counts; a new one is logged individually
+        assertTrue(aggregator.fold("tap", mapOf("id" to 0), 0L))
+        assertFalse(aggregator.fold("tap", mapOf("id" to 1024), 0L))
+
+        aggregator.flush(MINUTE, sink)
+        assertEquals(1025L, emitted.single().params["count"])
+
+        // The next minute starts with no combinations
+        repeat(1024) { assertTrue(aggregator.fold("tap", mapOf("id" to 5_000 + it), MINUTE)) }
+    }
+
+    @Test
+    fun flushAllIncludesTheRunningMinute() {
+        aggregator.register("tap", emptyList())
+        aggregator.fold("tap", null, 10L)
+        aggregator.fold("tap", null, MINUTE + 10)
+
+        aggregator.flush(MINUTE + 20, sink)
+        assertEquals(1, emitted.size)
+        aggregator.flushAll(sink)
+        assertEquals(listOf(0L, MINUTE), emitted.map { it.timestamp })
+
+        emitted.clear()
+        aggregator.flushAll(sink)
+        assertTrue(emitted.isEmpty())
+    }
+
+    @Test
+    fun unregisteredEventKeepsItsCountsUntilFlush() {
+        aggregator.register("tap", emptyList())
+        aggregator.fold("tap", null, 0L)
+        aggregator.unregister("tap")
+
+        assertFalse(aggregator.fold("tap", null, 0L))
+        aggregator.flushAll(sink)
+        assertEquals(1L, emitted.single().params["count"])
+    }
+
+    private class Summary(val eventName: String, val params: Map<String, Any>, val timestamp: Long)
+
+    private companion object {
+        const val MINUTE = EventAggregator.BUCKET_MS
+    }
+}
@@ -0,0 +1,150 @@
+package com.monetai.sdk.events
+
+import com.monetai.sdk.Session
+import com.monetai.sdk.models.ViewProductItemParams
+import com.monetai.sdk.network.ApiClient
+import com.monetai.sdk.network.Transport
+import com.monetai.sdk.testing.FakeTransport
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import okhttp3.MediaType
+import okhttp3.RequestBody
+import okhttp3.ResponseBody
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import retrofit2.HttpException
+import retrofit2.Response
+import java.util.TimeZone
+
+class EventPipelineTest {
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+    private val session = Session(id = 1L, sdkKey = "sdk-key", userId = "user", organizationId = 1)
+    private lateinit var originalTransport: Transport
+
+    @Before
+    fun setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"))
+        originalTransport = ApiClient.transport
+    }
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+        ApiClient.transport = originalTransport
+    }
+
+    @Test
+    fun drainedEventsAreUploadedAsOneRequestPerEndpoint() {
+        val transport = FakeTransport()
+        ApiClient.transport = transport
+        val pipeline = EventPipeline()
+        repeat(150) { i -> pipeline.logEvent(session.id, "tap", mapOf("i" to i), 1_000L + i) }
+        repeat(10) { pipeline.logViewProductItem(session.id, VIEW, 2_000L) }
+
+        pipeline.start(scope, session)
+        awaitDelivered(pipeline, 160)
+
+        assertEquals(150, transport.events.size)
+        assertEquals(10, transport.viewProductItems.size)
+        assertEquals((0 until 150).toSet(), transport.events.map { it.getAsJsonObject("params").get("i").asInt }.toSet())
+        assertTrue(transport.events.all { it.get("userId").asString == "user" && it.has("createdAt") })
+        // 160 events in batches of 64, each split into at most one request per endpoint
+        assertTrue("${transport.eventRequests.get()} requests", transport.eventRequests.get() <= 6)
+    }
+
+    @Test
+    fun impressionsLoggedTogetherAreUploadedInOneRequest() {
+        val transport = FakeTransport()
+        ApiClient.transport = transport
+        val pipeline = EventPipeline()
+        pipeline.start(scope, session)
+        // Let the worker go idle, as it is between impression flushes
+        Thread.sleep(50)
+
+        pipeline.logViewProductItems(List(20) { i -> Impression(VIEW.copy(productId = "product-$i"), 2_000L + i, session.id) })
+        awaitDelivered(pipeline, 20)
+
+        assertEquals(1, transport.eventRequests.get())
+        assertEquals((0 until 20).map { "product-$it" }, transport.viewProductItems.map { it.get("productId").asString })
+    }
+
+    @Test
+    fun missingBatchEndpointFallsBackToSingleEvents() {
+        val transport = object : FakeTransport() {
+            override suspend fun createEvents(body: RequestBody) {
+                eventRequests.incrementAndGet()
+                throw HttpException(Response.error<Unit>(404, ResponseBody.create(MediaType.get("text/plain"), "")))
+            }
+        }
+        ApiClient.transport = transport
+        val pipeline = EventPipeline()
+        repeat(100) { i -> pipeline.logEvent(session.id, "tap", mapOf("i" to i), 1_000L + i) }
+
+        pipeline.start(scope, session)
+        awaitDelivered(pipeline, 100)
+
+        assertEquals(100, transport.events.size)
+        assertEquals(0, pipeline.stats().failed)
+    }
+
+    @Test
+    fun eventsOfAnotherSessionAreDropped() {
+        val transport = FakeTransport()
+        ApiClient.transport = transport
+        val pipeline = EventPipeline()
+        pipeline.logEvent(session.id + 1, "stale", null, 1_000L)
+        pipeline.logEvent(EventPipeline.NO_SESSION, "early", null, 1_000L)
+        pipeline.logEvent(session.id, "current", null, 1_000L)
+
+        pipeline.start(scope, session)
+        awaitDelivered(pipeline, 2)
+
+        assertEquals(setOf("early", "current"), transport.events.map { it.get("eventName").asString }.toSet())
+        assertEquals(1, pipeline.stats().dropped)
+    }
+
+    @Test
+    fun stopSendsAggregatedCountsForTheOutgoingSession() {
+        val transport = FakeTransport()
+        ApiClient.transport = transport
+        val pipeline = EventPipeline()
+        pipeline.setAggregation("scroll", listOf("screen"))
+        pipeline.start(scope, session)
+
+        val now = System.currentTimeMillis()
+        repeat(3) { assertTrue(pipeline.aggregate("scroll", mapOf("screen" to "home"), now)) }
+        // Reset or user switch: the running minute is not lost, and the summary outlives the cancelled scope
+        pipeline.stop()
+        scope.cancel()
+        awaitDelivered(pipeline, 1)
+
+        val summary = transport.events.single()
+        assertEquals("scroll", summary.get("eventName").asString)
+        assertEquals("user", summary.get("userId").asString)
+        assertEquals(3, summary.getAsJsonObject("params").get("count").asInt)
+    }
+
+    private fun awaitDelivered(pipeline: EventPipeline, count: Long) {
+        val deadline = System.currentTimeMillis() + 10_000
+        while (pipeline.stats().delivered < count) {
+            if (System.currentTimeMillis() > deadline) throw AssertionError("delivered ${pipeline.stats()}")
+            Thread.sleep(5)
+        }
+    }
+
+    private companion object {
+        val VIEW = ViewProductItemParams(
+            productId = "premium",
+            price = 9.99,
+            regularPrice = 14.99,
+            currencyCode = "USD",
+            promotionId = 1
+        )
+    }
+}
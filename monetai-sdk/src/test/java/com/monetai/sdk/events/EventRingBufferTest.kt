@@ -0,0 +1,111 @@
+package com.monetai.sdk.events
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+class EventRingBufferTest {
+
+    private class Recorder : EventRingBuffer.Sink {
+        val names = ArrayList<String?>()
+        val timestamps = ArrayList<Long>()
+
+        override fun accept(kind: Int, name: String?, payload: Any?, timestamp: Long, session: Long, sampleRate: Double) {
+            names.add(name)
+            timestamps.add(timestamp)
+        }
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun capacityMustBePowerOfTwo() {
+        EventRingBuffer(100)
+    }
+
+    @Test
+    fun drainsInPublishOrder() {
+        val buffer = EventRingBuffer(8)
+        for (i in 0 until 5) {
+            assertTrue(buffer.offer(0, "e$i", null, i.toLong(), 1L, 1.0))
+        }
+
+        val recorder = Recorder()
+        assertEquals(3, buffer.drain(recorder, 3))
+        assertEquals(2, buffer.drain(recorder, 10))
+        assertEquals(listOf("e0", "e1", "e2", "e3", "e4"), recorder.names)
+        assertTrue(buffer.isEmpty())
+        assertEquals(5L, buffer.publishedCount)
+    }
+
+    @Test
+    fun rejectsWhenFullAndAcceptsAfterDrain() {
+        val buffer = EventRingBuffer(4)
+        repeat(4) { assertTrue(buffer.offer(0, "e", null, 0L, 1L, 1.0)) }
+        assertFalse(buffer.offer(0, "overflow", null, 0L, 1L, 1.0))
+
+        assertEquals(1, buffer.drain(Recorder(), 1))
+        assertTrue(buffer.offer(0, "e", null, 0L, 1L, 1.0))
+    }
+
+    @Test
+    fun clearDiscardsPublishedRecords() {
+        val buffer = EventRingBuffer(4)
+        repeat(3) { buffer.offer(0, "e", null, 0L, 1L, 1.0) }
+        buffer.clear()
+
+        assertTrue(buffer.isEmpty())
+        assertEquals(0, buffer.drain(Recorder(), 10))
+    }
+
+    @Test
+    fun concurrentProducersLoseNothingAndKeepPerProducerOrder() {
+        val producers = 4
+        val perProducer = 250_000
+        val buffer = EventRingBuffer(1024)
+        val start = CountDownLatch(1)
+        val done = CountDownLatch(producers)
+        val producing = AtomicBoolean(true)
+
+        repeat(producers) { producer ->
+            Thread {
+                start.await()
+                for (sequence in 0 until perProducer) {
+                    // Full buffer: the consumer is behind, spin until it catches up
+                    while (!buffer.offer(producer, null, null, sequence.toLong(), 1L, 1.0)) {
+                        Thread.yield()
+                    }
+                }
+                done.countDown()
+            }.start()
+        }
+
+        val next = LongArray(producers)
+        var received = 0L
+        var outOfOrder = 0
+        val sink = EventRingBuffer.Sink { kind, _, _, timestamp, _, _ ->
+            if (timestamp != next[kind]) outOfOrder++
+            next[kind] = timestamp + 1
+            received++
+        }
+
+        start.countDown()
+        Thread {
+            done.await()
+            producing.set(false)
+        }.start()
+        while (producing.get() || !buffer.isEmpty()) {
+            if (buffer.drain(sink, 64) == 0) Thread.yield()
+        }
+
+        assertTrue(done.await(0, TimeUnit.SECONDS))
+        assertEquals(producers.toLong() * perProducer, received)
+        assertEquals(0, outOfOrder)
+        for (producer in 0 until producers) {
+            assertEquals(perProducer.toLong(), next[producer])
+        }
+        assertEquals(producers.toLong() * perProducer, buffer.publishedCount)
+    }
+}
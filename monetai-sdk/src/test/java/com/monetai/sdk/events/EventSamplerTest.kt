@@ -0,0 +1,104 @@
+package com.monetai.sdk.events
+
+import com.monetai.sdk.network.EventSamplingRule
+import com.monetai.sdk.testing.TestContext
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class EventSamplerTest {
+
+    private var now = 0L
+    private val sampler = EventSampler(clock = { now })
+    private val context = TestContext()
+
+    @Test
+    fun eventsWithoutRulesAreKept() {
+        assertEquals(1.0, sampler.sample("tap"), 0.0)
+        sampler.update(context, mapOf("scroll" to EventSamplingRule(sample_rate = 0.0)))
+        assertEquals(1.0, sampler.sample("tap"), 0.0)
+        assertEquals(EventSampler.DROP, sampler.sample("scroll"), 0.0)
+    }
+
+    @Test
+    fun sampledEventsAreKeptAtTheirRate() {
+        sampler.update(context, mapOf("scroll" to EventSamplingRule(sample_rate = 0.25)))
+
+        val results = List(20_000) { sampler.sample("scroll") }
+        val kept = results.filter { it != EventSampler.DROP }
+        assertEquals(0.25, kept.size / 20_000.0, 0.02)
+        assertTrue(kept.all { it == 0.25 })
+    }
+
+    @Test
+    fun capReportsTheShareItKeptInThePreviousMinute() {
+        sampler.update(context, mapOf("scroll" to EventSamplingRule(max_per_minute = 10)))
+
+        // First minute: nothing is known about the rate yet
+        val first = List(40) { sampler.sample("scroll") }
+        assertEquals(List(10) { 1.0 } + List(30) { EventSampler.DROP }, first)
+
+        // The previous minute kept 10 of 40, so each kept event stands for 4
+        now = 60_000L
+        val second = List(20) { sampler.sample("scroll") }
+        assertEquals(List(10) { 0.25 } + List(10) { EventSampler.DROP }, second)
+
+        // A minute under the cap brings the ratio back to 1
+        now = 120_000L
+        repeat(5) { sampler.sample("scroll") }
+        now = 180_000L
+        assertEquals(1.0, sampler.sample("scroll"), 0.0)
+    }
+
+    @Test
+    fun capShareIsForgottenAfterAnIdleMinute() {
+        sampler.update(context, mapOf("scroll" to EventSamplingRule(max_per_minute = 1)))
+        repeat(4) { sampler.sample("scroll") }
+
+        now = 150_000L
+        assertEquals(1.0, sampler.sample("scroll"), 0.0)
+    }
+
+    @Test
+    fun sampleRateAndCapCombine() {
+        sampler.update(context, mapOf("scroll" to EventSamplingRule(sample_rate = 0.5, max_per_minute = 100)))
+        repeat(1_000) { sampler.sample("scroll") }
+
+        now = 60_000L
+        val kept = List(1_000) { sampler.sample("scroll") }.filter { it != EventSampler.DROP }
+        assertEquals(100, kept.size)
+        // About 500 events passed sampling in the first minute and 100 of them were kept
+        assertEquals(0.1, kept.first(), 0.02)
+    }
+
+    @Test
+    fun rulesArePersistedForTheNextProcess() {
+        sampler.update(context, mapOf("scroll" to EventSamplingRule(sample_rate = 0.0)))
+
+        val next = EventSampler(clock = { now })
+        assertEquals(1.0, next.sample("scroll"), 0.0)
+        next.restore(context)
+        assertEquals(EventSampler.DROP, next.sample("scroll"), 0.0)
+
+        // Empty server rules clear the persisted ones
+        sampler.update(context, null)
+        assertNull(context.getSharedPreferences("com.monetai.sdk.event_sampling", 0).getString("rules", null))
+        val cleared = EventSampler(clock = { now })
+        cleared.restore(context)
+        assertEquals(1.0, cleared.sample("scroll"), 0.0)
+    }
+
+    @Test
+    fun restoreAfterServerRulesDoesNotOverrideThem() {
+        sampler.update(context, mapOf("scroll" to EventSamplingRule(sample_rate = 0.0)))
+
+        // A new process: the server answers before the persisted rules are read
+        val next = EventSampler(clock = { now })
+        next.update(TestContext(), mapOf("tap" to EventSamplingRule(sample_rate = 0.0)))
+        next.restore(context)
+
+        assertEquals(1.0, next.sample("scroll"), 0.0)
+        assertEquals(EventSampler.DROP, next.sample("tap"), 0.0)
+    }
+}
@@ -0,0 +1,72 @@
+package com.monetai.sdk.events
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class ViewabilityTrackerTest {
+
+    private val tracker = ViewabilityTracker<String>(minVisibleFraction = 0.5, minVisibleMs = 1_000L)
+
+    @Test
+    fun reportsItemsVisibleLongEnoughAboveThreshold() {
+        assertEquals(emptyList<String>(), tracker.update(mapOf("a" to 0.5, "b" to 0.49), now = 0L, session = 1L))
+        assertEquals(1_000L, tracker.nextDeadline())
+
+        assertEquals(emptyList<String>(), tracker.update(mapOf("a" to 0.8, "b" to 1.0), now = 999L, session = 1L))
+        assertEquals(listOf("a"), tracker.update(mapOf("a" to 0.8, "b" to 1.0), now = 1_000L, session = 1L))
+        assertEquals(listOf("b"), tracker.update(mapOf("b" to 1.0), now = 1_999L, session = 1L))
+        assertNull(tracker.nextDeadline())
+    }
+
+    @Test
+    fun interruptionRestartsTheTimer() {
+        tracker.update(mapOf("a" to 1.0), now = 0L, session = 1L)
+        // Scrolled below the threshold, then out of the list entirely
+        tracker.update(mapOf("a" to 0.2), now = 600L, session = 1L)
+        tracker.update(mapOf("a" to 1.0), now = 700L, session = 1L)
+        tracker.update(emptyMap(), now = 800L, session = 1L)
+        tracker.update(mapOf("a" to 1.0), now = 900L, session = 1L)
+
+        assertEquals(emptyList<String>(), tracker.update(mapOf("a" to 1.0), now = 1_800L, session = 1L))
+        assertEquals(listOf("a"), tracker.update(mapOf("a" to 1.0), now = 1_900L, session = 1L))
+    }
+
+    @Test
+    fun reportsEachItemOncePerSession() {
+        tracker.update(mapOf("a" to 1.0), now = 0L, session = 1L)
+        assertEquals(listOf("a"), tracker.update(mapOf("a" to 1.0), now = 1_000L, session = 1L))
+
+        // Scrolling away and back does not report it again
+        tracker.update(emptyMap(), now = 1_500L, session = 1L)
+        tracker.update(mapOf("a" to 1.0), now = 2_000L, session = 1L)
+        assertEquals(emptyList<String>(), tracker.update(mapOf("a" to 1.0), now = 5_000L, session = 1L))
+
+        // A new session reports it again
+        tracker.update(mapOf("a" to 1.0), now = 6_000L, session = 2L)
+        assertEquals(listOf("a"), tracker.update(mapOf("a" to 1.0), now = 7_000L, session = 2L))
+    }
+
+    @Test
+    fun itemsSeenBeforeInitializeBelongToTheFirstSession() {
+        tracker.update(mapOf("a" to 1.0), now = 0L, session = EventPipeline.NO_SESSION)
+        assertEquals(listOf("a"), tracker.update(mapOf("a" to 1.0), now = 1_000L, session = EventPipeline.NO_SESSION))
+
+        // Initialization completes: neither reported again nor does its timer restart
+        tracker.update(mapOf("a" to 1.0, "b" to 1.0), now = 1_500L, session = 1L)
+        assertEquals(listOf("b"), tracker.update(mapOf("a" to 1.0, "b" to 1.0), now = 2_500L, session = 1L))
+    }
+
+    @Test
+    fun staleFramesAreIgnored() {
+        tracker.update(mapOf("a" to 1.0), now = 500L, session = 1L)
+
+        // A frame captured before the last evaluated one arrives late
+        assertEquals(emptyList<String>(), tracker.update(emptyMap(), now = 400L, session = 1L))
+        assertEquals(emptyList<String>(), tracker.update(mapOf("a" to 1.0), now = 100L, session = 1L))
+
+        // It neither interrupted nor backdated the visible item
+        assertEquals(1_500L, tracker.nextDeadline())
+        assertEquals(listOf("a"), tracker.update(mapOf("a" to 1.0), now = 1_500L, session = 1L))
+    }
+}
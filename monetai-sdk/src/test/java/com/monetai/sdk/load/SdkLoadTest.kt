@@ -0,0 +1,264 @@
+package com.monetai.sdk.load
+
+import com.monetai.sdk.MonetaiSDK
+import com.monetai.sdk.models.CallbackDispatch
+import com.monetai.sdk.models.ViewProductItemParams
+import com.monetai.sdk.network.ApiClient
+import com.monetai.sdk.testing.PerfResults
+import com.monetai.sdk.testing.PerformanceTests
+import com.monetai.sdk.testing.TestContext
+import com.monetai.sdk.testing.newMockWebServer
+import com.monetai.sdk.utils.SdkClock
+import kotlinx.coroutines.runBlocking
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import java.lang.management.ManagementFactory
+import java.util.TimeZone
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.concurrent.thread
+
+/**
+ * Load harness: N producer threads call logEvent, logViewProductItem and getOffer while the SDK
+ * talks to a local MockWebServer with injected latency and errors. Reports throughput, delivered
+ * versus dropped events, p99 enqueue latency, peak thread count and peak heap to build/reports/perf,
+ * and fails when a threshold is missed. Runs in the perfTest task, not with the unit tests.
+ *
+ * Every knob is a system property, forwarded by Gradle, e.g.
+ * `./gradlew :monetai-sdk:perfTest --tests '*SdkLoadTest' -Dmonetai.load.producers=8 -Dmonetai.load.errorRate=0.05`
+ */
+@Category(PerformanceTests::class)
+class SdkLoadTest {
+
+    /**
+     * Load shape and pass thresholds
+     */
+    private class LoadConfig {
+        val producers = int("producers", 4)
+        // The default burst fits the event buffer (8192); larger ones measure how many events are dropped
+        val eventsPerProducer = int("eventsPerProducer", 1_500)
+        // Every n-th call of a producer also logs a product view / requests an offer
+        val viewEvery = int("viewEvery", 10)
+        val offerEvery = int("offerEvery", 250)
+        val latencyMs = long("latencyMs", 1)
+        // Share of API requests answered with 500
+        val errorRate = double("errorRate", 0.01)
+        val drainTimeoutMs = long("drainTimeoutMs", 60_000)
+
+        val minThroughput = double("minThroughput", 10_000.0)
+        val maxDropRate = double("maxDropRate", 0.0)
+        val minDeliveredRate = double("minDeliveredRate", 0.95)
+        val maxP99EnqueueMicros = long("maxP99EnqueueMicros", 2_000)
+        val maxThreads = int("maxThreads", 200)
+        val maxPeakHeapMb = long("maxPeakHeapMb", 384)
+
+        private fun property(name: String): String? = System.getProperty("monetai.load.$name")
+        private fun int(name: String, default: Int) = property(name)?.toInt() ?: default
+        private fun long(name: String, default: Long) = property(name)?.toLong() ?: default
+        private fun double(name: String, default: Double) = property(name)?.toDouble() ?: default
+    }
+
+    private val config = LoadConfig()
+    private val sdk = MonetaiSDK.shared
+    private val server = newMockWebServer()
+    private val requests = AtomicInteger()
+    private val injectedErrors = AtomicInteger()
+    private lateinit var originalClock: () -> Long
+
+    @Before
+    fun setUp() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"))
+        originalClock = SdkClock.source
+        // Circuit breakers and rate limits need a moving clock; Android stubs return 0
+        SdkClock.source = { System.nanoTime() / 1_000_000L }
+        sdk.platformServicesEnabled = false
+        sdk.reset()
+
+        server.setDispatcher(MockApi())
+        server.start()
+        ApiClient.setBaseUrl(server.url("/").toString())
+    }
+
+    @After
+    fun tearDown() {
+        sdk.reset()
+        server.shutdown()
+        ApiClient.setBaseUrl(ApiClient.DEFAULT_BASE_URL)
+        sdk.platformServicesEnabled = true
+        SdkClock.source = originalClock
+    }
+
+    @Test
+    fun sustainedLoadMeetsThresholds() = runBlocking {
+        sdk.awaitInitialize(TestContext(), "load-sdk-key", "load-user")
+        val before = sdk.eventStats
+        val threads = ManagementFactory.getThreadMXBean()
+        threads.resetPeakThreadCount()
+        val heap = HeapSampler().also { it.start() }
+
+        val offersAnswered = AtomicInteger()
+        val offersRequested = AtomicInteger()
+        val logged = AtomicLong()
+        val latencies = Array(config.producers) { LongArray(config.eventsPerProducer) }
+        val start = CountDownLatch(1)
+
+        val producers = (0 until config.producers).map { producer ->
+            thread(name = "load-producer-$producer") {
+                val samples = latencies[producer]
+                val params = mutableMapOf<String, Any>("producer" to producer)
+                start.await()
+                for (i in 0 until config.eventsPerProducer) {
+                    val began = System.nanoTime()
+                    sdk.logEvent("load_event", params)
+                    if (i % config.viewEvery == 0) {
+                        sdk.logViewProductItem(VIEW)
+                        logged.incrementAndGet()
+                    }
+                    samples[i] = System.nanoTime() - began
+                    logged.incrementAndGet()
+
+                    if (i % config.offerEvery == 0) {
+                        offersRequested.incrementAndGet()
+                        sdk.getOffer(i % 5, CallbackDispatch.IMMEDIATE) { _, _ -> offersAnswered.incrementAndGet() }
+                    }
+                }
+            }
+        }
+
+        val startedAt = System.nanoTime()
+        start.countDown()
+        producers.forEach { it.join() }
+        val produceSeconds = (System.nanoTime() - startedAt) / 1e9
+
+        // Wait until every logged event was delivered, failed or dropped
+        val deadline = System.currentTimeMillis() + config.drainTimeoutMs
+        while (true) {
+            val stats = sdk.eventStats
+            val settled = (stats.delivered - before.delivered) + (stats.failed - before.failed) + (stats.dropped - before.dropped)
+            if ((settled >= logged.get() && !stats.buffered && offersAnswered.get() == offersRequested.get()) ||
+                System.currentTimeMillis() > deadline
+            ) break
+            Thread.sleep(20)
+        }
+        val drainSeconds = (System.nanoTime() - startedAt) / 1e9
+        heap.stop()
+
+        val after = sdk.eventStats
+        val delivered = after.delivered - before.delivered
+        val failed = after.failed - before.failed
+        val dropped = after.dropped - before.dropped
+        val requeued = after.requeued - before.requeued
+        val total = logged.get()
+        val throughput = total / produceSeconds
+        val p99Micros = percentile(latencies, 0.99) / 1_000
+        val peakThreads = threads.peakThreadCount
+        val peakHeapMb = heap.peakBytes / (1024 * 1024)
+        val deliveredRate = delivered.toDouble() / total
+        val dropRate = dropped.toDouble() / total
+
+        PerfResults.write(
+            this@SdkLoadTest,
+            """
+            |SDK load test: ${config.producers} producers x ${config.eventsPerProducer} events, latency ${config.latencyMs} ms, error rate ${config.errorRate}
+            |  logged            $total events (${"%.0f".format(throughput)} events/s into the SDK)
+            |  delivered         $delivered (${"%.2f".format(deliveredRate * 100)}%), ${"%.0f".format(delivered / drainSeconds)} events/s end to end
+            |  failed            $failed (${injectedErrors.get()} injected errors over ${requests.get()} requests)
+            |  dropped           $dropped (${"%.2f".format(dropRate * 100)}%)
+            |  requeued          $requeued
+            |  offers            ${offersAnswered.get()}/${offersRequested.get()} answered
+            |  p99 enqueue       $p99Micros us
+            |  peak threads      $peakThreads
+            |  peak heap         $peakHeapMb MB
+            """.trimMargin()
+        )
+
+        assertTrue("throughput ${"%.0f".format(throughput)}/s below ${config.minThroughput}/s", throughput >= config.minThroughput)
+        assertTrue("drop rate $dropRate above ${config.maxDropRate}", dropRate <= config.maxDropRate)
+        assertTrue("delivered rate $deliveredRate below ${config.minDeliveredRate}", deliveredRate >= config.minDeliveredRate)
+        assertTrue("p99 enqueue ${p99Micros}us above ${config.maxP99EnqueueMicros}us", p99Micros <= config.maxP99EnqueueMicros)
+        assertTrue("peak threads $peakThreads above ${config.maxThreads}", peakThreads <= config.maxThreads)
+        assertTrue("peak heap ${peakHeapMb}MB above ${config.maxPeakHeapMb}MB", peakHeapMb <= config.maxPeakHeapMb)
+        assertTrue("offers unanswered", offersAnswered.get() == offersRequested.get())
+    }
+
+    private fun percentile(samples: Array<LongArray>, quantile: Double): Long {
+        val all = LongArray(samples.sumOf { it.size })
+        var offset = 0
+        for (array in samples) {
+            System.arraycopy(array, 0, all, offset, array.size)
+            offset += array.size
+        }
+        all.sort()
+        return all[((all.size - 1) * quantile).toInt()]
+    }
+
+    /**
+     * Monetai API stand-in with fixed latency and random 500s
+     */
+    private inner class MockApi : Dispatcher() {
+        override fun dispatch(request: RecordedRequest): MockResponse {
+            requests.incrementAndGet()
+            if (config.latencyMs > 0) Thread.sleep(config.latencyMs)
+
+            val path = request.path.orEmpty()
+            if (!path.endsWith("/sdk-integrations") && ThreadLocalRandom.current().nextDouble() < config.errorRate) {
+                injectedErrors.incrementAndGet()
+                return MockResponse().setResponseCode(500)
+            }
+            return when {
+                path.endsWith("/sdk-integrations") -> MockResponse().setBody(
+                    """{"organization_id":1,"platform":"android","version":"load","server_timestamp":${System.currentTimeMillis()}}"""
+                )
+                path.endsWith("/offers/get-offer") -> MockResponse().setBody(
+                    """{"agentId":1,"agentName":"load","products":[{"name":"Premium","sku":"premium","discountRate":0.2,"isManual":false}]}"""
+                )
+                else -> MockResponse().setBody("{}")
+            }
+        }
+    }
+
+    /**
+     * Samples used heap every few milliseconds
+     */
+    private class HeapSampler {
+        @Volatile
+        private var running = true
+        @Volatile
+        var peakBytes = 0L
+            private set
+        private lateinit var sampler: Thread
+
+        fun start() {
+            val runtime = Runtime.getRuntime()
+            sampler = thread(isDaemon = true, name = "load-heap-sampler") {
+                while (running) {
+                    peakBytes = maxOf(peakBytes, runtime.totalMemory() - runtime.freeMemory())
+                    Thread.sleep(5)
+                }
+            }
+        }
+
+        fun stop() {
+            running = false
+            sampler.join()
+        }
+    }
+
+    private companion object {
+        val VIEW = ViewProductItemParams(
+            productId = "premium",
+            price = 9.99,
+            regularPrice = 14.99,
+            currencyCode = "USD",
+            promotionId = 1
+        )
+    }
+}
@@ -0,0 +1,79 @@
+package com.monetai.sdk.network
+
+import okhttp3.Dns
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Test
+import java.io.IOException
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.UnknownHostException
+import java.util.concurrent.TimeUnit
+
+class CachingDnsTest {
+
+    private var now = 0L
+    private var lookups = 0
+    private val resolver = Dns { hostname ->
+        lookups++
+        listOf(InetAddress.getByAddress(hostname, byteArrayOf(127, 0, 0, 1)))
+    }
+    private val dns = CachingDns(resolver, ttlMs = 30_000L, clock = { now })
+
+    @Test
+    fun lookupsAreCachedUntilTheTtlExpires() {
+        val first = dns.lookup("api.example.com")
+        now = 29_999L
+        assertSame(first, dns.lookup("api.example.com"))
+        assertEquals(1, lookups)
+
+        now = 30_000L
+        dns.lookup("api.example.com")
+        assertEquals(2, lookups)
+    }
+
+    @Test
+    fun failedLookupsAreNotCached() {
+        var fail = true
+        val flaky = CachingDns(Dns { hostname ->
+            if (fail) throw UnknownHostException(hostname)
+            resolver.lookup(hostname)
+        }, clock = { now })
+
+        try {
+            flaky.lookup("api.example.com")
+        } catch (e: UnknownHostException) {
+            // Expected
+        }
+        fail = false
+        flaky.lookup("api.example.com")
+        flaky.lookup("api.example.com")
+        assertEquals(1, lookups)
+    }
+
+    @Test
+    fun aFailedConnectionEvictsTheHost() {
+        // A port nobody listens on: the connection is refused
+        val port = ServerSocket(0).use { it.localPort }
+        val client = OkHttpClient.Builder()
+            .dns(dns)
+            .eventListener(dns.evictOnConnectFailure)
+            .connectTimeout(5, TimeUnit.SECONDS)
+            .build()
+        dns.lookup("api.example.com")
+        dns.lookup("other.example.com")
+
+        try {
+            client.newCall(Request.Builder().url("http://api.example.com:$port/").build()).execute().close()
+        } catch (e: IOException) {
+            // Expected
+        }
+
+        dns.lookup("api.example.com")
+        dns.lookup("other.example.com")
+        // The failed host was resolved again; the other host is still cached
+        assertEquals(3, lookups)
+    }
+}
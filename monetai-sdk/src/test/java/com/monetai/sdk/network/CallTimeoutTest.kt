@@ -0,0 +1,68 @@
+package com.monetai.sdk.network
+
+import com.monetai.sdk.testing.newMockWebServer
+import kotlinx.coroutines.runBlocking
+import okhttp3.OkHttpClient
+import okhttp3.RequestBody
+import okhttp3.mockwebserver.MockResponse
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+import java.io.InterruptedIOException
+import java.util.concurrent.TimeUnit
+
+/**
+ * A request's CallTimeout bounds the whole call, not just each read
+ */
+class CallTimeoutTest {
+
+    private val server = newMockWebServer()
+    private lateinit var apiService: ApiService
+
+    @Before
+    fun setUp() {
+        server.start()
+        val client = OkHttpClient.Builder()
+            .readTimeout(5, TimeUnit.SECONDS)
+            .build()
+        apiService = Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .callFactory(CallTimeoutCallFactory(client))
+            .addConverterFactory(GsonConverterFactory.create(ApiClient.gson))
+            .build()
+            .create(ApiService::class.java)
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun tricklingResponseIsCutOffAtTheDeadline() = runBlocking {
+        // Every chunk arrives well within the read timeout; the whole body takes about 2 s
+        server.enqueue(MockResponse().setBody("{\"offer\":null,\"padding\":\"${"x".repeat(180)}\"}").throttleBody(10, 100, TimeUnit.MILLISECONDS))
+
+        val started = System.nanoTime()
+        try {
+            apiService.getOffer(GetOfferRequest(sdkKey = "sdk-key", userId = "user", promotionId = 1), CallTimeout(300))
+            fail("the call should time out")
+        } catch (e: InterruptedIOException) {
+            // expected
+        }
+        val elapsedMs = (System.nanoTime() - started) / 1_000_000
+        assertTrue("timed out after ${elapsedMs}ms", elapsedMs < 1_500)
+    }
+
+    @Test
+    fun untaggedCallHasNoDeadline() = runBlocking {
+        server.enqueue(MockResponse().setBody("{}").throttleBody(1, 50, TimeUnit.MILLISECONDS))
+        apiService.createEvent(RequestBody.create(null, "{}"))
+        assertEquals(1, server.requestCount)
+    }
+}
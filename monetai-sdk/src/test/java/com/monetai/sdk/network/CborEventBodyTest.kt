@@ -0,0 +1,245 @@
+package com.monetai.sdk.network
+
+import com.google.gson.JsonParser
+import com.monetai.sdk.models.EventEncoding
+import com.monetai.sdk.models.EventParams
+import com.monetai.sdk.models.ViewProductItemParams
+import com.monetai.sdk.testing.newMockWebServer
+import kotlinx.coroutines.runBlocking
+import okhttp3.mockwebserver.MockResponse
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+
+/**
+ * CBOR event bodies sent to a local server decode to the same fields as their JSON counterparts
+ */
+class CborEventBodyTest {
+
+    private val server = newMockWebServer()
+    private lateinit var transport: RetrofitTransport
+
+    @Before
+    fun setUp() {
+        server.start()
+        val apiService = Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(NullOnEmptyConverterFactory())
+            .addConverterFactory(GsonConverterFactory.create(ApiClient.gson))
+            .build()
+            .create(ApiService::class.java)
+        transport = RetrofitTransport(apiService)
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun eventBodyDecodesOnTheServer() = runBlocking {
+        val params = EventParams()
+            .putString("screen", "paywall – ünïcode")
+            .putInt("position", -3)
+            .putLong("elapsed_ms", 5_000_000_000L)
+            .putDouble("price", 9.99)
+            .putDouble("ratio", 0.5)
+            .putBoolean("trial", true)
+
+        val decoded = sendAndDecode(EventEncoding.CBOR, params)
+        val json = sendAndDecode(EventEncoding.JSON, params)
+
+        assertEquals(
+            mapOf(
+                "sdkKey" to "sdk-key",
+                "userId" to "user-1",
+                "platform" to "android",
+                "eventName" to "purchase_tap",
+                "params" to mapOf(
+                    "screen" to "paywall – ünïcode",
+                    "position" to -3L,
+                    "elapsed_ms" to 5_000_000_000L,
+                    "price" to 9.99,
+                    "ratio" to 0.5,
+                    "trial" to true
+                ),
+                "sampleRate" to 0.25,
+                "createdAt" to CREATED_AT
+            ),
+            decoded
+        )
+        assertEquals(json, decoded)
+    }
+
+    @Test
+    fun nestedMapParamsAndViewProductItemDecode() = runBlocking {
+        val params = mapOf(
+            "tags" to listOf("a", "b"),
+            "nested" to mapOf("count" to 300, "missing" to null),
+            "big" to 70_000
+        )
+        assertEquals(sendAndDecode(EventEncoding.JSON, params), sendAndDecode(EventEncoding.CBOR, params))
+
+        val item = ViewProductItemParams(
+            productId = "premium:monthly",
+            price = 4.99,
+            regularPrice = 9.99,
+            currencyCode = "USD",
+            promotionId = 12,
+            month = 1
+        )
+        server.enqueue(MockResponse())
+        transport.logViewProductItem(EventEnvelope("sdk-key", "user-1", ApiClient.gson, EventEncoding.CBOR).viewProductItemBody(item, CREATED_AT))
+        val request = server.takeRequest()
+        assertEquals("application/cbor", request.getHeader("Content-Type"))
+        assertEquals(
+            mapOf(
+                "sdkKey" to "sdk-key",
+                "userId" to "user-1",
+                "platform" to "android",
+                "productId" to "premium:monthly",
+                "price" to 4.99,
+                "regularPrice" to 9.99,
+                "currencyCode" to "USD",
+                "promotionId" to 12L,
+                "month" to 1L,
+                "createdAt" to CREATED_AT
+            ),
+            CborDecoder(request.body).read()
+        )
+    }
+
+    @Test
+    fun valuesOfOtherTypesDecodeAsGsonMapsThem() = runBlocking {
+        val params = mapOf(
+            "positions" to intArrayOf(1, 2, 3),
+            "prices" to doubleArrayOf(1.5, 2.0),
+            "flags" to booleanArrayOf(true, false),
+            "encoding" to EventEncoding.CBOR,
+            "grade" to 'A',
+            "placement" to Placement("hero", 2, note = null),
+            "placements" to listOf(Placement("footer", 5, note = "sticky"))
+        )
+        val json = sendAndDecode(EventEncoding.JSON, params)
+        assertEquals(json, sendAndDecode(EventEncoding.CBOR, params))
+        assertEquals(mapOf("slot" to "hero", "rank" to 2L), (json as Map<*, *>).let { it["params"] as Map<*, *> }["placement"])
+
+        // An object as the whole params
+        val placement = Placement("modal", 1, note = "first")
+        assertEquals(sendAndDecode(EventEncoding.JSON, placement), sendAndDecode(EventEncoding.CBOR, placement))
+    }
+
+    @Test
+    fun cborBodiesAreSmallerThanJson() {
+        val params = EventParams()
+            .putString("screen", "paywall")
+            .putInt("position", 3)
+            .putLong("elapsed_ms", 1_250L)
+            .putDouble("price", 9.99)
+            .putBoolean("trial", false)
+        val json = EventEnvelope("sdk-key", "user-1", ApiClient.gson, EventEncoding.JSON)
+            .createEventBody("purchase_tap", params, CREATED_AT).contentLength()
+        val cbor = EventEnvelope("sdk-key", "user-1", ApiClient.gson, EventEncoding.CBOR)
+            .createEventBody("purchase_tap", params, CREATED_AT).contentLength()
+
+        assertTrue("CBOR $cbor bytes, JSON $json bytes", cbor < json)
+    }
+
+    /**
+     * Send one event in the given encoding and decode the body the server received.
+     * JSON numbers are normalized to Long or Double the way CBOR distinguishes them.
+     */
+    private suspend fun sendAndDecode(encoding: EventEncoding, params: Any): Any? {
+        val envelope = EventEnvelope("sdk-key", "user-1", ApiClient.gson, encoding)
+        server.enqueue(MockResponse())
+        transport.createEvent(envelope.createEventBody("purchase_tap", params, CREATED_AT, sampleRate = 0.25))
+        val request = server.takeRequest()
+        return when (encoding) {
+            EventEncoding.CBOR -> {
+                assertEquals("application/cbor", request.getHeader("Content-Type"))
+                CborDecoder(request.body).read()
+            }
+            EventEncoding.JSON -> fromJson(JsonParser.parseString(request.body.readUtf8()))
+        }
+    }
+
+    private fun fromJson(element: com.google.gson.JsonElement): Any? = when {
+        element.isJsonNull -> null
+        element.isJsonObject -> element.asJsonObject.entrySet().associate { (key, value) -> key to fromJson(value) }
+        element.isJsonArray -> element.asJsonArray.map { fromJson(it) }
+        element.asJsonPrimitive.isBoolean -> element.asBoolean
+        element.asJsonPrimitive.isString -> element.asString
+        else -> element.asString.let { it.toLongOrNull() ?: it.toDouble() }
+    }
+
+    /**
+     * Minimal CBOR decoder for the subset CborWriter emits: integers, text strings,
+     * arrays, definite and indefinite maps, float32/float64, booleans and null
+     */
+    private class CborDecoder(private val source: Buffer) {
+
+        fun read(): Any? {
+            val value = readItem()
+            assertTrue("trailing bytes", source.exhausted())
+            return value
+        }
+
+        private fun readItem(): Any? {
+            val initial = source.readByte().toInt() and 0xFF
+            val major = initial ushr 5
+            val info = initial and 0x1F
+            return when (major) {
+                0 -> argument(info)
+                1 -> -1 - argument(info)
+                3 -> source.readUtf8(argument(info))
+                4 -> List(argument(info).toInt()) { readItem() }
+                5 -> if (info == 31) readIndefiniteMap() else {
+                    val size = argument(info).toInt()
+                    LinkedHashMap<String, Any?>(size).apply {
+                        repeat(size) { put(readItem() as String, readItem()) }
+                    }
+                }
+                7 -> when (info) {
+                    20 -> false
+                    21 -> true
+                    22 -> null
+                    26 -> Float.fromBits(source.readInt()).toDouble()
+                    27 -> Double.fromBits(source.readLong())
+                    else -> throw AssertionError("unexpected simple value $info")
+                }
+                else -> throw AssertionError("unexpected major type $major")
+            }
+        }
+
+        private fun readIndefiniteMap(): Map<String, Any?> {
+            val map = LinkedHashMap<String, Any?>()
+            while (true) {
+                if (source.getByte(0).toInt() and 0xFF == 0xFF) {
+                    source.skip(1)
+                    return map
+                }
+                map[readItem() as String] = readItem()
+            }
+        }
+
+        private fun argument(info: Int): Long = when {
+            info < 24 -> info.toLong()
+            info == 24 -> (source.readByte().toInt() and 0xFF).toLong()
+            info == 25 -> (source.readShort().toInt() and 0xFFFF).toLong()
+            info == 26 -> source.readInt().toLong() and 0xFFFFFFFFL
+            info == 27 -> source.readLong()
+            else -> throw AssertionError("unexpected additional info $info")
+        }
+    }
+
+    private data class Placement(val slot: String, val rank: Int, val note: String?)
+
+    private companion object {
+        const val CREATED_AT = "2024-01-01T00:00:00.000Z"
+    }
+}
@@ -0,0 +1,161 @@
+package com.monetai.sdk.network
+
+import com.monetai.sdk.MonetaiError
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.async
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import okhttp3.ResponseBody
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import retrofit2.HttpException
+import retrofit2.Response
+import java.io.IOException
+
+/**
+ * Circuit breaker transitions on a fake clock
+ */
+class CircuitBreakerTest {
+
+    private var now = 0L
+    private val transitions = ArrayList<CircuitState>()
+    private val breaker = CircuitBreaker(
+        ApiEndpoint.OFFERS,
+        listener = { CircuitBreakerListener { _, state -> transitions.add(state) } },
+        clock = { now }
+    )
+
+    @Test
+    fun opensOnceTheFailureRateReachesTheThresholdAndFailsFast() = runBlocking {
+        repeat(5) { succeed() }
+        repeat(4) { fail() }
+        // Nine calls are below the minimum, however many failed
+        assertEquals(CircuitState.CLOSED, breaker.currentState)
+
+        fail()
+        assertEquals(CircuitState.OPEN, breaker.currentState)
+        assertEquals(listOf(CircuitState.OPEN), transitions)
+
+        var sent = false
+        val error = runCatching { breaker.execute { sent = true } }.exceptionOrNull()
+        assertTrue(error is MonetaiError.CircuitOpen)
+        assertEquals(false, sent)
+
+        now += 10_000L
+        assertEquals(20_000L, breaker.remainingOpenMs())
+    }
+
+    @Test
+    fun halfOpenLetsASingleProbeThroughAndItsSuccessCloses() = runBlocking {
+        open()
+        now += 30_000L
+        assertEquals(0L, breaker.remainingOpenMs())
+
+        val probeResult = CompletableDeferred<Unit>()
+        val probe = async(start = CoroutineStart.UNDISPATCHED) { breaker.execute { probeResult.await() } }
+        assertEquals(CircuitState.HALF_OPEN, breaker.currentState)
+
+        // Only the probe is in flight; everything else still fails fast
+        val error = runCatching { breaker.execute { } }.exceptionOrNull()
+        assertTrue(error is MonetaiError.CircuitOpen)
+
+        probeResult.complete(Unit)
+        probe.await()
+        assertEquals(CircuitState.CLOSED, breaker.currentState)
+        assertEquals(listOf(CircuitState.OPEN, CircuitState.HALF_OPEN, CircuitState.CLOSED), transitions)
+
+        // Closing starts a fresh window
+        repeat(9) { fail() }
+        assertEquals(CircuitState.CLOSED, breaker.currentState)
+    }
+
+    @Test
+    fun aFailedProbeOpensTheCircuitAgain() = runBlocking {
+        open()
+        now += 30_000L
+
+        fail()
+        assertEquals(CircuitState.OPEN, breaker.currentState)
+        assertEquals(30_000L, breaker.remainingOpenMs())
+        assertEquals(listOf(CircuitState.OPEN, CircuitState.HALF_OPEN, CircuitState.OPEN), transitions)
+    }
+
+    @Test
+    fun aCancelledProbeLetsTheNextRequestProbe() = runBlocking {
+        open()
+        now += 30_000L
+
+        val probe = launch(start = CoroutineStart.UNDISPATCHED) { breaker.execute { CompletableDeferred<Unit>().await() } }
+        probe.cancelAndJoin()
+        assertEquals(CircuitState.HALF_OPEN, breaker.currentState)
+
+        succeed()
+        assertEquals(CircuitState.CLOSED, breaker.currentState)
+    }
+
+    @Test
+    fun slowCallsOpenTheCircuit() = runBlocking {
+        // Just under the slow-call duration does not count
+        succeed(durationMs = 9_999L)
+        succeed()
+        repeat(7) { succeed(durationMs = 10_000L) }
+        assertEquals(CircuitState.CLOSED, breaker.currentState)
+
+        // Eight slow calls of ten reach the 80% slow-call threshold
+        succeed(durationMs = 10_000L)
+        assertEquals(CircuitState.OPEN, breaker.currentState)
+        assertEquals(listOf(CircuitState.OPEN), transitions)
+    }
+
+    @Test
+    fun slowCallsBelowTheThresholdKeepTheCircuitClosed() = runBlocking {
+        repeat(3) { succeed() }
+        repeat(7) { succeed(durationMs = 10_000L) }
+        assertEquals(CircuitState.CLOSED, breaker.currentState)
+        assertTrue(transitions.isEmpty())
+    }
+
+    @Test
+    fun clientErrorsDoNotCountAsFailures() = runBlocking {
+        repeat(20) {
+            runCatching { breaker.execute { throw HttpException(Response.error<Unit>(400, ResponseBody.create(null, ""))) } }
+        }
+        assertEquals(CircuitState.CLOSED, breaker.currentState)
+
+        repeat(10) {
+            runCatching { breaker.execute { throw HttpException(Response.error<Unit>(503, ResponseBody.create(null, ""))) } }
+        }
+        assertEquals(CircuitState.OPEN, breaker.currentState)
+    }
+
+    @Test
+    fun aFailingListenerDoesNotBreakTheBreaker() = runBlocking {
+        val breaker = CircuitBreaker(
+            ApiEndpoint.EVENTS,
+            listener = { CircuitBreakerListener { _, _ -> throw IllegalStateException("listener failed") } },
+            clock = { now }
+        )
+        repeat(10) { runCatching { breaker.execute { throw IOException("down") } } }
+        assertEquals(CircuitState.OPEN, breaker.currentState)
+
+        now += 30_000L
+        breaker.execute { }
+        assertEquals(CircuitState.CLOSED, breaker.currentState)
+    }
+
+    private suspend fun open() {
+        repeat(10) { fail() }
+        assertEquals(CircuitState.OPEN, breaker.currentState)
+    }
+
+    private suspend fun succeed(durationMs: Long = 0L) {
+        breaker.execute { now += durationMs }
+    }
+
+    private suspend fun fail() {
+        runCatching { breaker.execute { throw IOException("down") } }
+    }
+}
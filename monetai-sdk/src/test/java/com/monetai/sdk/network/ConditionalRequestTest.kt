@@ -0,0 +1,108 @@
+package com.monetai.sdk.network
+
+import com.google.gson.JsonObject
+import com.google.gson.JsonParser
+import kotlinx.coroutines.runBlocking
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+
+/**
+ * Conditional offer requests against a local server
+ */
+class ConditionalRequestTest {
+
+    private val server = MockWebServer()
+    private lateinit var apiService: ApiService
+    private lateinit var transport: RetrofitTransport
+
+    @Before
+    fun setUp() {
+        server.start()
+        apiService = Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(GsonConverterFactory.create(ApiClient.gson))
+            .build()
+            .create(ApiService::class.java)
+        transport = RetrofitTransport(apiService, ValidatorCache())
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun offerValidatorTravelsInTheBodyAnd304ServesTheCache() = runBlocking {
+        val request = GetOfferRequest(sdkKey = "sdk-key", userId = "user", promotionId = 7)
+        server.enqueue(offerResponse("agent-1").setHeader("ETag", "\"v1\""))
+        server.enqueue(MockResponse().setResponseCode(304))
+        server.enqueue(offerResponse("agent-2").setHeader("ETag", "\"v2\""))
+
+        assertEquals("agent-1", transport.getOffer(request)?.agentName)
+        val first = server.takeRequest()
+        assertFalse(body(first).has("etag"))
+        assertNull(first.getHeader("If-None-Match"))
+
+        // Unchanged: the server matches the body field and the cached offer is returned
+        assertEquals("agent-1", transport.getOffer(request)?.agentName)
+        val second = server.takeRequest()
+        assertEquals("\"v1\"", body(second).get("etag").asString)
+        assertNull("a POST precondition would be answered with 412", second.getHeader("If-None-Match"))
+
+        // Changed: a full response replaces the cached one
+        assertEquals("agent-2", transport.getOffer(request)?.agentName)
+        assertEquals("\"v1\"", body(server.takeRequest()).get("etag").asString)
+        server.enqueue(MockResponse().setResponseCode(304))
+        assertEquals("agent-2", transport.getOffer(request)?.agentName)
+        assertEquals("\"v2\"", body(server.takeRequest()).get("etag").asString)
+    }
+
+    @Test
+    fun withoutACacheOfferRequestsCarryNoValidator() = runBlocking {
+        // The SDK's own transport: the backend does not read the etag field yet
+        val unconditional = RetrofitTransport(apiService)
+        val request = GetOfferRequest(sdkKey = "sdk-key", userId = "user", promotionId = 7)
+        server.enqueue(offerResponse("agent-1").setHeader("ETag", "\"v1\""))
+        server.enqueue(offerResponse("agent-2").setHeader("ETag", "\"v2\""))
+
+        assertEquals("agent-1", unconditional.getOffer(request)?.agentName)
+        assertFalse(body(server.takeRequest()).has("etag"))
+        assertEquals("agent-2", unconditional.getOffer(request)?.agentName)
+        assertFalse(body(server.takeRequest()).has("etag"))
+    }
+
+    @Test
+    fun initializeIsNeverConditional() = runBlocking {
+        val request = InitializeRequest(sdkKey = "sdk-key", version = "1.0.0")
+        repeat(2) {
+            server.enqueue(
+                MockResponse()
+                    .setHeader("ETag", "\"init-1\"")
+                    .setBody("""{"organization_id":3,"platform":"android","version":"1.0.0","server_timestamp":1000}""")
+            )
+        }
+
+        assertEquals(3, transport.initialize(request).organization_id)
+        assertEquals(3, transport.initialize(request).organization_id)
+        server.takeRequest()
+        assertFalse(body(server.takeRequest()).has("etag"))
+    }
+
+    private fun offerResponse(agentName: String): MockResponse {
+        return MockResponse().setBody(
+            """{"agentId":1,"agentName":"$agentName","products":[{"name":"Premium","sku":"premium","discountRate":0.3,"isManual":false}]}"""
+        )
+    }
+
+    private fun body(request: okhttp3.mockwebserver.RecordedRequest): JsonObject {
+        return JsonParser.parseString(request.body.readUtf8()).asJsonObject
+    }
+}
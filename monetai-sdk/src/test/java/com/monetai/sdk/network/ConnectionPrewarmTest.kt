@@ -0,0 +1,116 @@
+package com.monetai.sdk.network
+
+import com.monetai.sdk.testing.PerfResults
+import com.monetai.sdk.testing.PerformanceTests
+import com.monetai.sdk.testing.newMockWebServer
+import com.monetai.sdk.utils.SdkClock
+import kotlinx.coroutines.runBlocking
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import java.util.concurrent.TimeUnit
+
+/**
+ * Prewarming opens the connection the first offer request uses.
+ * The time to the first offer response with and without it is measured in perfTest: every new
+ * connection to the local server costs [CONNECTION_SETUP_MS], standing in for the handshakes of
+ * a real HTTPS connection; a prewarmed connection has already paid it.
+ */
+class ConnectionPrewarmTest {
+
+    private companion object {
+        const val CONNECTION_SETUP_MS = 150L
+        const val ROUNDS = 5
+    }
+
+    private val servers = ArrayList<MockWebServer>()
+    private lateinit var originalClock: () -> Long
+
+    @Before
+    fun setUp() {
+        originalClock = SdkClock.source
+        SdkClock.source = { System.nanoTime() / 1_000_000L }
+    }
+
+    @After
+    fun tearDown() {
+        servers.forEach { it.shutdown() }
+        ApiClient.setBaseUrl(ApiClient.DEFAULT_BASE_URL)
+        SdkClock.source = originalClock
+    }
+
+    @Test
+    fun theFirstOfferReusesThePrewarmedConnection() = runBlocking {
+        val server = startServer(connectionSetupMs = 0)
+        ApiClient.setBaseUrl(server.url("/").toString())
+        val pool = ApiClient.okHttpClient.connectionPool()
+        pool.evictAll()
+
+        ApiClient.prewarm()
+        assertEquals("HEAD", server.takeRequest(5, TimeUnit.SECONDS)?.method)
+        // The connection returns to the pool once the warm-up response is closed
+        val deadline = System.currentTimeMillis() + 5_000
+        while (pool.idleConnectionCount() == 0) {
+            if (System.currentTimeMillis() > deadline) throw AssertionError("prewarmed connection was not pooled")
+            Thread.sleep(5)
+        }
+
+        ApiClient.transport.getOffer(GetOfferRequest(sdkKey = "sdk-key", userId = "user", promotionId = 1))
+        val offer = server.takeRequest()
+        assertEquals("/offers/get-offer", offer.path)
+        assertEquals("second request on the prewarmed connection", 1, offer.sequenceNumber)
+    }
+
+    @Test
+    @Category(PerformanceTests::class)
+    fun prewarmingTakesConnectionSetupOffTheFirstRequest() = runBlocking {
+        val cold = LongArray(ROUNDS)
+        val warm = LongArray(ROUNDS)
+        // A fresh server per measurement, so no pooled connection carries over
+        for (round in 0 until ROUNDS) {
+            cold[round] = firstOfferMs(startServer(), prewarm = false)
+            warm[round] = firstOfferMs(startServer(), prewarm = true)
+        }
+        cold.sort()
+        warm.sort()
+
+        val coldMedian = cold[ROUNDS / 2]
+        val warmMedian = warm[ROUNDS / 2]
+        PerfResults.write(this@ConnectionPrewarmTest, "First offer TTFB: ${coldMedian}ms cold, ${warmMedian}ms prewarmed (median of $ROUNDS)")
+        assertTrue("cold ${coldMedian}ms", coldMedian >= CONNECTION_SETUP_MS)
+        assertTrue("prewarmed ${warmMedian}ms", warmMedian < CONNECTION_SETUP_MS / 2)
+    }
+
+    private suspend fun firstOfferMs(server: MockWebServer, prewarm: Boolean): Long {
+        ApiClient.setBaseUrl(server.url("/").toString())
+        if (prewarm) {
+            ApiClient.prewarm()
+            // The app keeps starting up while the warm-up request completes
+            Thread.sleep(CONNECTION_SETUP_MS * 2)
+        }
+        val started = System.nanoTime()
+        ApiClient.transport.getOffer(GetOfferRequest(sdkKey = "sdk-key", userId = "user", promotionId = 1))
+        return (System.nanoTime() - started) / 1_000_000L
+    }
+
+    private fun startServer(connectionSetupMs: Long = CONNECTION_SETUP_MS): MockWebServer {
+        val server = newMockWebServer(connectionSetupMs = connectionSetupMs)
+        server.setDispatcher(object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                // MockWebServer would write a body after the headers even for HEAD
+                if (request.method == "HEAD") return MockResponse()
+                return MockResponse().setBody("""{"agentId":1,"agentName":"agent","products":[]}""")
+            }
+        })
+        server.start()
+        servers.add(server)
+        return server
+    }
+}
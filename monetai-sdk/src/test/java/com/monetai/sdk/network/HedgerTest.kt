@@ -0,0 +1,111 @@
+package com.monetai.sdk.network
+
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.awaitCancellation
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Hedging decisions on virtual time; latency figures are measured by [HedgingTransportTest]
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+class HedgerTest {
+
+    @Test
+    fun aStalledAttemptIsAnsweredByTheHedgeAndCancelled() = runTest {
+        val hedger = hedger(defaultDelayMs = 100)
+        val attempts = AtomicInteger()
+        val stalledCancelled = CompletableDeferred<Boolean>()
+
+        val result = hedger.execute {
+            if (attempts.incrementAndGet() == 1) {
+                try {
+                    awaitCancellation()
+                } finally {
+                    stalledCancelled.complete(true)
+                }
+            }
+            "hedge"
+        }
+
+        assertEquals("hedge", result)
+        assertEquals(2, attempts.get())
+        assertTrue(stalledCancelled.await())
+        assertEquals(100, testScheduler.currentTime)
+    }
+
+    @Test
+    fun aFastAttemptIsNotHedged() = runTest {
+        val hedger = hedger(defaultDelayMs = 100)
+        val attempts = AtomicInteger()
+
+        val result = hedger.execute {
+            attempts.incrementAndGet()
+            delay(50)
+            "primary"
+        }
+
+        assertEquals("primary", result)
+        assertEquals(1, attempts.get())
+    }
+
+    @Test
+    fun aFailedAttemptWaitsForTheOther() = runTest {
+        val hedger = hedger(defaultDelayMs = 100)
+        val attempts = AtomicInteger()
+
+        val result = hedger.execute {
+            if (attempts.incrementAndGet() == 1) {
+                delay(150)
+                throw IllegalStateException("primary failed")
+            }
+            delay(200)
+            "hedge"
+        }
+
+        assertEquals("hedge", result)
+        assertEquals(300, testScheduler.currentTime)
+    }
+
+    @Test
+    fun hedgesStayWithinTheBudget() = runTest {
+        // No latency window is ever complete, so every request would hedge after 100 ms
+        val hedger = hedger(defaultDelayMs = 100, minSamples = Int.MAX_VALUE)
+        val attempts = AtomicInteger()
+
+        repeat(100) {
+            hedger.execute {
+                attempts.incrementAndGet()
+                delay(1_000)
+            }
+        }
+
+        // One hedge up front, then a tenth of a hedge per request
+        val hedges = attempts.get() - 100
+        assertTrue("$hedges hedges", hedges in 10..11)
+    }
+
+    @Test
+    fun disabledHedgerRunsOneAttempt() = runTest {
+        val hedger = hedger(defaultDelayMs = 100).apply { enabled = false }
+        val attempts = AtomicInteger()
+
+        hedger.execute {
+            attempts.incrementAndGet()
+            delay(1_000)
+        }
+
+        assertEquals(1, attempts.get())
+    }
+
+    private fun TestScope.hedger(defaultDelayMs: Long, minSamples: Int = 10): Hedger {
+        return Hedger(minSamples = minSamples, defaultDelayMs = defaultDelayMs, clock = { testScheduler.currentTime })
+            .apply { enabled = true }
+    }
+}
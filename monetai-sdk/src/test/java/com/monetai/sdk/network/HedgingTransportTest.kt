@@ -0,0 +1,107 @@
+package com.monetai.sdk.network
+
+import com.monetai.sdk.testing.PerfResults
+import com.monetai.sdk.testing.PerformanceTests
+import com.monetai.sdk.testing.newMockWebServer
+import com.monetai.sdk.utils.SdkClock
+import kotlinx.coroutines.runBlocking
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.experimental.categories.Category
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Offer requests against a local server with bimodal latency: most answers are fast,
+ * one in [SLOW_EVERY] stalls. A hedged second attempt cuts the stalled tail.
+ * Runs in the perfTest task; hedging decisions themselves are covered by [HedgerTest].
+ */
+@Category(PerformanceTests::class)
+class HedgingTransportTest {
+
+    private companion object {
+        const val REQUESTS = 300
+        const val SLOW_EVERY = 33
+        const val SLOW_MS = 400L
+    }
+
+    private val server = newMockWebServer()
+    private val served = AtomicInteger()
+    private lateinit var originalClock: () -> Long
+    private lateinit var transport: RetrofitTransport
+
+    @Before
+    fun setUp() {
+        originalClock = SdkClock.source
+        SdkClock.source = { System.nanoTime() / 1_000_000L }
+        server.dispatcher = object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                val response = MockResponse().setBody("""{"agentId":1,"agentName":"agent","products":[]}""")
+                // The hedge of a stalled request is the next request, so it is served fast
+                if (served.incrementAndGet() % SLOW_EVERY == 0) {
+                    response.setBodyDelay(SLOW_MS, TimeUnit.MILLISECONDS)
+                }
+                return response
+            }
+        }
+        server.start()
+        val apiService = Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(NullOnEmptyConverterFactory())
+            .addConverterFactory(GsonConverterFactory.create(ApiClient.gson))
+            .build()
+            .create(ApiService::class.java)
+        transport = RetrofitTransport(apiService)
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+        SdkClock.source = originalClock
+    }
+
+    @Test
+    fun hedgingCutsTheSlowTail() = runBlocking {
+        val plain = measure(transport)
+        val plainRequests = served.getAndSet(0)
+
+        val hedged = measure(HedgingTransport(transport, Hedger().apply { enabled = true }))
+        val hedgedRequests = served.get()
+
+        PerfResults.write(
+            this@HedgingTransportTest,
+            "Offer latency without hedging: p50 ${plain.percentile(0.5)}ms, p99 ${plain.percentile(0.99)}ms, " +
+                "max ${plain.last()}ms over $plainRequests requests; " +
+                "with hedging: p50 ${hedged.percentile(0.5)}ms, p99 ${hedged.percentile(0.99)}ms, " +
+                "max ${hedged.last()}ms over $hedgedRequests requests"
+        )
+        assertTrue("p99 without hedging ${plain.percentile(0.99)}ms", plain.percentile(0.99) >= SLOW_MS)
+        assertTrue("p99 with hedging ${hedged.percentile(0.99)}ms", hedged.percentile(0.99) < SLOW_MS / 2)
+        // Hedges are budgeted at a tenth of the requests
+        assertTrue("$hedgedRequests requests for $REQUESTS offers", hedgedRequests <= REQUESTS * 11 / 10 + 1)
+    }
+
+    /**
+     * @return Sorted latencies of [REQUESTS] sequential offer requests, in milliseconds
+     */
+    private suspend fun measure(transport: Transport): LongArray {
+        val request = GetOfferRequest(sdkKey = "sdk-key", userId = "user", promotionId = 1)
+        val latencies = LongArray(REQUESTS)
+        for (i in 0 until REQUESTS) {
+            val started = System.nanoTime()
+            transport.getOffer(request)
+            latencies[i] = (System.nanoTime() - started) / 1_000_000L
+        }
+        latencies.sort()
+        return latencies
+    }
+
+    private fun LongArray.percentile(percentile: Double): Long = this[(percentile * (size - 1)).toInt()]
+}
@@ -0,0 +1,44 @@
+package com.monetai.sdk.network
+
+import com.google.gson.GsonBuilder
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.models.OfferProduct
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class OfferTypeAdapterTest {
+
+    private val gson = GsonBuilder()
+        .registerTypeAdapter(Offer::class.java, OfferTypeAdapter())
+        .serializeNulls()
+        .create()
+
+    @Test
+    fun offerRoundTrips() {
+        val offer = Offer(
+            agentId = 7,
+            agentName = "Spring \"sale\"",
+            products = listOf(
+                OfferProduct(name = "Monthly", sku = "premium:monthly", discountRate = 0.25, isManual = false),
+                OfferProduct(name = "Yearly", sku = "premium:yearly", discountRate = 0.5, isManual = true)
+            )
+        )
+
+        val json = gson.toJson(offer, Offer::class.java)
+
+        assertEquals(
+            "{\"agentId\":7,\"agentName\":\"Spring \\\"sale\\\"\",\"products\":[" +
+                "{\"name\":\"Monthly\",\"sku\":\"premium:monthly\",\"discountRate\":0.25,\"isManual\":false}," +
+                "{\"name\":\"Yearly\",\"sku\":\"premium:yearly\",\"discountRate\":0.5,\"isManual\":true}]}",
+            json
+        )
+        assertEquals(offer, gson.fromJson(json, Offer::class.java))
+    }
+
+    @Test
+    fun nullOfferWritesNull() {
+        assertEquals("null", gson.toJson(null, Offer::class.java))
+        assertNull(gson.fromJson("null", Offer::class.java))
+    }
+}
@@ -0,0 +1,102 @@
+package com.monetai.sdk.network
+
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.yield
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * RequestScheduler lane priority and wait-time accounting, on a single thread with a fake clock
+ */
+class RequestSchedulerTest {
+
+    private var now = 0L
+    private val scheduler = RequestScheduler(maxConcurrent = 2, clock = { now })
+
+    @Test
+    fun waitingCriticalRequestGetsTheNextSlotBeforeAnalytics() = runBlocking<Unit> {
+        val order = ArrayList<String>()
+        val gates = List(4) { CompletableDeferred<Unit>() }
+
+        // Analytics never takes the last slot: the first one runs, the second waits
+        start { scheduler.run(RequestLane.ANALYTICS) { order.add("analytics-0"); gates[0].await() } }
+        start { scheduler.run(RequestLane.ANALYTICS) { order.add("analytics-1"); gates[1].await() } }
+        // The last slot is free for a critical request
+        start { scheduler.run(RequestLane.CRITICAL) { order.add("critical-0"); gates[2].await() } }
+        // No slot left: queued behind the waiting analytics request, but in the critical lane
+        start { scheduler.run(RequestLane.CRITICAL) { order.add("critical-1"); gates[3].await() } }
+        assertEquals(listOf("analytics-0", "critical-0"), order)
+
+        gates[0].complete(Unit)
+        settle()
+        assertEquals(listOf("analytics-0", "critical-0", "critical-1"), order)
+
+        gates[2].complete(Unit)
+        settle()
+        assertEquals(listOf("analytics-0", "critical-0", "critical-1", "analytics-1"), order)
+
+        gates[1].complete(Unit)
+        gates[3].complete(Unit)
+    }
+
+    @Test
+    fun analyticsDoesNotStartWhileCriticalIsWaiting() = runBlocking<Unit> {
+        val gates = List(3) { CompletableDeferred<Unit>() }
+        start { scheduler.run(RequestLane.CRITICAL) { gates[0].await() } }
+        start { scheduler.run(RequestLane.CRITICAL) { gates[1].await() } }
+
+        var criticalStarted = false
+        var analyticsStarted = false
+        // Analytics queues first
+        start { scheduler.run(RequestLane.ANALYTICS) { analyticsStarted = true } }
+        start { scheduler.run(RequestLane.CRITICAL) { criticalStarted = true; gates[2].await() } }
+        assertFalse(criticalStarted || analyticsStarted)
+
+        // The freed slot goes to the critical request even though analytics could take it too
+        gates[0].complete(Unit)
+        settle()
+        assertTrue(criticalStarted)
+        assertFalse(analyticsStarted)
+
+        gates[1].complete(Unit)
+        settle()
+        assertTrue(analyticsStarted)
+        gates[2].complete(Unit)
+    }
+
+    @Test
+    fun laneStatsRecordQueueWaitPerLane() = runBlocking<Unit> {
+        val gate = CompletableDeferred<Unit>()
+        start { scheduler.run(RequestLane.CRITICAL) { gate.await() } }
+        start { scheduler.run(RequestLane.CRITICAL) { gate.await() } }
+
+        // Both slots are taken: these queue at t=0
+        val analytics = start { scheduler.run(RequestLane.ANALYTICS) {} }
+        val critical = start { scheduler.run(RequestLane.CRITICAL) {} }
+        assertFalse(analytics.isCompleted)
+
+        now = 120
+        gate.complete(Unit)
+        settle()
+        assertTrue(critical.isCompleted && analytics.isCompleted)
+
+        val stats = scheduler.stats()
+        assertEquals(LaneStats(requests = 3, totalWaitMs = 120, maxWaitMs = 120), stats[RequestLane.CRITICAL])
+        assertEquals(LaneStats(requests = 1, totalWaitMs = 120, maxWaitMs = 120), stats[RequestLane.ANALYTICS])
+        assertEquals(40L, stats.getValue(RequestLane.CRITICAL).averageWaitMs)
+    }
+
+    /** Start [block] right away, running until it first suspends */
+    private fun CoroutineScope.start(block: suspend CoroutineScope.() -> Unit): Job =
+        launch(start = CoroutineStart.UNDISPATCHED, block = block)
+
+    /** Let every resumed coroutine run until it suspends again */
+    private suspend fun settle() = repeat(10) { yield() }
+}
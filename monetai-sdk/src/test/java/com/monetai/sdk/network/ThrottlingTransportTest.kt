@@ -0,0 +1,181 @@
+package com.monetai.sdk.network
+
+import com.monetai.sdk.MonetaiError
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import okhttp3.MediaType
+import okhttp3.RequestBody
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.fail
+import org.junit.Before
+import org.junit.Test
+import retrofit2.HttpException
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * ThrottlingTransport against a local server that answers with scripted 429/503 responses
+ */
+class ThrottlingTransportTest {
+
+    private val server = MockWebServer()
+    private val script = ConcurrentLinkedQueue<MockResponse>()
+    private val received = AtomicInteger()
+    @Volatile
+    private var now = 0L
+    private val limiters = RateLimiters(clock = { now })
+    private lateinit var transport: ThrottlingTransport
+
+    @Before
+    fun setUp() {
+        // Scripted responses first, then 200 for everything
+        server.setDispatcher(object : Dispatcher() {
+            override fun dispatch(request: RecordedRequest): MockResponse {
+                received.incrementAndGet()
+                return script.poll() ?: MockResponse().setBody("{}")
+            }
+        })
+        server.start()
+        val apiService = Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .addConverterFactory(GsonConverterFactory.create(ApiClient.gson))
+            .build()
+            .create(ApiService::class.java)
+        transport = ThrottlingTransport(RetrofitTransport(apiService), limiters)
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun unthrottledTrafficIsNotLimited() = runBlocking {
+        // Far beyond any bucket burst, with a clock that never moves: only passes if nothing is limited
+        withTimeout(20_000) {
+            (0 until 500).map { async(Dispatchers.IO) { transport.createEvent(body()) } }.awaitAll()
+        }
+        assertEquals(500, received.get())
+    }
+
+    @Test
+    fun serverPauseIsObeyedThenTrafficRampsUp() = runBlocking {
+        repeat(3) { transport.createEvent(body()) }
+        script.add(MockResponse().setResponseCode(429).setHeader("Retry-After", "2"))
+
+        try {
+            transport.createEvent(body())
+            fail("429 should surface as RateLimited")
+        } catch (e: MonetaiError.RateLimited) {
+            assertEquals(2_000L, e.retryAfterMs)
+        }
+        assertEquals(4, received.get())
+
+        // During the pause calls fail fast without reaching the server
+        now = 1_999L
+        repeat(10) {
+            try {
+                transport.createEvent(body())
+                fail("paused")
+            } catch (e: MonetaiError.RateLimited) {
+                assertEquals(1L, e.retryAfterMs)
+            }
+        }
+        assertEquals(4, received.get())
+        assertEquals(1L, limiters[ApiEndpoint.EVENTS].remainingPauseMs())
+
+        // Other endpoint groups were never paused
+        assertEquals(0L, limiters[ApiEndpoint.OFFERS].remainingPauseMs())
+
+        // After the pause the bucket starts empty and refills at 20/s: 500 ms buys 10 requests
+        now = 2_500L
+        repeat(10) { transport.createEvent(body()) }
+        assertEquals(14, received.get())
+        val waiting = async(Dispatchers.IO) { transport.createEvent(body()) }
+        delay(100)
+        assertFalse("the 11th request waits for a token", waiting.isCompleted)
+        now = 2_550L
+        withTimeout(5_000) { waiting.await() }
+        assertEquals(15, received.get())
+
+        // Once the recovery window passes without another pause, the limit lifts
+        now = 2_000L + 60_000L
+        withTimeout(20_000) {
+            (0 until 200).map { async(Dispatchers.IO) { transport.createEvent(body()) } }.awaitAll()
+        }
+        assertEquals(215, received.get())
+    }
+
+    @Test
+    fun unavailableWithoutRetryAfterDoesNotPause() = runBlocking {
+        script.add(MockResponse().setResponseCode(503))
+        try {
+            transport.createEvent(body())
+            fail("503 without Retry-After should surface as HttpException")
+        } catch (e: HttpException) {
+            assertEquals(503, e.code())
+        }
+        assertEquals(0L, limiters[ApiEndpoint.EVENTS].remainingPauseMs())
+
+        // The next call goes straight to the server
+        transport.createEvent(body())
+        assertEquals(2, received.get())
+
+        // With Retry-After a 503 is a pause like a 429
+        script.add(MockResponse().setResponseCode(503).setHeader("Retry-After", "3"))
+        try {
+            transport.createEvent(body())
+            fail("503 with Retry-After should surface as RateLimited")
+        } catch (e: MonetaiError.RateLimited) {
+            assertEquals(3_000L, e.retryAfterMs)
+        }
+        assertEquals(3_000L, limiters[ApiEndpoint.EVENTS].remainingPauseMs())
+    }
+
+    @Test
+    fun tooManyRequestsWithoutRetryAfterPausesForTheDefault() = runBlocking {
+        script.add(MockResponse().setResponseCode(429))
+        try {
+            transport.createEvent(body())
+            fail("429 should surface as RateLimited")
+        } catch (e: MonetaiError.RateLimited) {
+            assertEquals(10_000L, e.retryAfterMs)
+        }
+
+        // A second 429 during recovery pauses again and restarts the recovery window
+        now = 10_500L
+        script.add(MockResponse().setResponseCode(429).setHeader("Retry-After", "1"))
+        try {
+            transport.createEvent(body())
+            fail("429 should surface as RateLimited")
+        } catch (e: MonetaiError.RateLimited) {
+            assertEquals(1_000L, e.retryAfterMs)
+        }
+        assertEquals(1_000L, limiters[ApiEndpoint.EVENTS].remainingPauseMs())
+
+        // Other errors pass through untouched
+        now = 100_000L
+        script.add(MockResponse().setResponseCode(400))
+        try {
+            transport.createEvent(body())
+            fail("400 should surface as HttpException")
+        } catch (e: HttpException) {
+            assertEquals(400, e.code())
+        }
+        assertEquals(0L, limiters[ApiEndpoint.EVENTS].remainingPauseMs())
+    }
+
+    private fun body(): RequestBody = RequestBody.create(MediaType.get("application/json"), "{}")
+}
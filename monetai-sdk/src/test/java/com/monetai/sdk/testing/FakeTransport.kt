@@ -0,0 +1,101 @@
+package com.monetai.sdk.testing
+
+import com.google.gson.JsonObject
+import com.google.gson.JsonParser
+import com.monetai.sdk.models.Offer
+import com.monetai.sdk.network.GetOfferRequest
+import com.monetai.sdk.network.InitializeRequest
+import com.monetai.sdk.network.InitializeResponse
+import com.monetai.sdk.network.PurchaseHistoryRequest
+import com.monetai.sdk.network.TransactionMappingRequest
+import com.monetai.sdk.network.Transport
+import okhttp3.RequestBody
+import okio.Buffer
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * In-process Transport for JVM tests.
+ * Answers initialize, returns [offer] and records every call; subclasses override
+ * the calls they need to slow down or fail. Event bodies must be JSON.
+ */
+internal open class FakeTransport(@Volatile var offer: Offer? = null) : Transport {
+
+    val initializeRequests = ConcurrentLinkedQueue<InitializeRequest>()
+    val offerRequests = ConcurrentLinkedQueue<GetOfferRequest>()
+    val mappingRequests = ConcurrentLinkedQueue<TransactionMappingRequest>()
+    val purchaseHistoryRequests = ConcurrentLinkedQueue<PurchaseHistoryRequest>()
+
+    /** Every event received, single or batched, with the identity fields of its body */
+    val events = ConcurrentLinkedQueue<JsonObject>()
+
+    /** Every product impression received, single or batched, with the identity fields of its body */
+    val viewProductItems = ConcurrentLinkedQueue<JsonObject>()
+
+    /** Number of event and impression requests */
+    val eventRequests = AtomicInteger()
+
+    override suspend fun initialize(request: InitializeRequest): InitializeResponse {
+        initializeRequests.add(request)
+        return InitializeResponse(
+            organization_id = 1,
+            platform = "android",
+            version = "test",
+            server_timestamp = System.currentTimeMillis()
+        )
+    }
+
+    override suspend fun createEvent(body: RequestBody) {
+        eventRequests.incrementAndGet()
+        events.add(parse(body))
+    }
+
+    override suspend fun logViewProductItem(body: RequestBody) {
+        eventRequests.incrementAndGet()
+        viewProductItems.add(parse(body))
+    }
+
+    override suspend fun createEvents(body: RequestBody) {
+        eventRequests.incrementAndGet()
+        events.addAll(unbatch(parse(body), "events"))
+    }
+
+    override suspend fun logViewProductItems(body: RequestBody) {
+        eventRequests.incrementAndGet()
+        viewProductItems.addAll(unbatch(parse(body), "items"))
+    }
+
+    override suspend fun getOffer(request: GetOfferRequest): Offer? {
+        offerRequests.add(request)
+        return offer
+    }
+
+    override suspend fun mapTransactionToUser(request: TransactionMappingRequest) {
+        mappingRequests.add(request)
+    }
+
+    override suspend fun sendPurchaseHistory(request: PurchaseHistoryRequest) {
+        purchaseHistoryRequests.add(request)
+    }
+
+    companion object {
+        fun parse(body: RequestBody): JsonObject {
+            val buffer = Buffer()
+            body.writeTo(buffer)
+            return JsonParser.parseString(buffer.readUtf8()).asJsonObject
+        }
+
+        /**
+         * The entries of a batch body, each with the body's identity fields
+         */
+        fun unbatch(body: JsonObject, arrayName: String): List<JsonObject> {
+            return body.getAsJsonArray(arrayName).map { element ->
+                element.asJsonObject.deepCopy().also { entry ->
+                    for ((name, value) in body.entrySet()) {
+                        if (name != arrayName) entry.add(name, value)
+                    }
+                }
+            }
+        }
+    }
+}
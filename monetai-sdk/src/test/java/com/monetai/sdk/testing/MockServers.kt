@@ -0,0 +1,45 @@
+package com.monetai.sdk.testing
+
+import okhttp3.mockwebserver.MockWebServer
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.util.logging.Level
+import java.util.logging.Logger
+import javax.net.ServerSocketFactory
+
+/**
+ * MockWebServer for timing-sensitive tests.
+ * MockWebServer writes response headers and body separately; with Nagle's algorithm on and the
+ * client's delayed ACK, every request on a kept-alive connection then stalls for about 40 ms.
+ * Accepted sockets get TCP_NODELAY, and per-request logging is turned off.
+ * @param connectionSetupMs Time each new connection waits before the server reads from it,
+ * standing in for the TLS handshake and round trips of a real connection
+ */
+fun newMockWebServer(connectionSetupMs: Long = 0L): MockWebServer {
+    Logger.getLogger(MockWebServer::class.java.name).level = Level.WARNING
+    return MockWebServer().apply { setServerSocketFactory(NoDelayServerSocketFactory(connectionSetupMs)) }
+}
+
+private class NoDelayServerSocketFactory(private val connectionSetupMs: Long) : ServerSocketFactory() {
+    override fun createServerSocket(): ServerSocket = NoDelayServerSocket()
+
+    override fun createServerSocket(port: Int): ServerSocket = NoDelayServerSocket().apply {
+        bind(InetSocketAddress(port))
+    }
+
+    override fun createServerSocket(port: Int, backlog: Int): ServerSocket = NoDelayServerSocket().apply {
+        bind(InetSocketAddress(port), backlog)
+    }
+
+    override fun createServerSocket(port: Int, backlog: Int, address: InetAddress?): ServerSocket =
+        NoDelayServerSocket().apply { bind(InetSocketAddress(address, port), backlog) }
+
+    private inner class NoDelayServerSocket : ServerSocket() {
+        override fun accept(): Socket = super.accept().also {
+            it.tcpNoDelay = true
+            if (connectionSetupMs > 0) Thread.sleep(connectionSetupMs)
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.monetai.sdk.testing
+
+import java.io.File
+
+/**
+ * Results file of a performance test: `<dir>/<test class>.txt`, replaced on every run.
+ * The directory is the `monetai.perf.resultsDir` system property (perfTest sets it to
+ * build/reports/perf), or build/reports/perf under the working directory.
+ */
+object PerfResults {
+
+    fun write(test: Any, report: String) {
+        val dir = File(System.getProperty("monetai.perf.resultsDir") ?: "build/reports/perf")
+        dir.mkdirs()
+        File(dir, "${test.javaClass.simpleName}.txt").writeText(report.trimEnd() + "\n")
+    }
+}
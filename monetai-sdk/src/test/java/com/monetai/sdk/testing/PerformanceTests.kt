@@ -0,0 +1,8 @@
+package com.monetai.sdk.testing
+
+/**
+ * JUnit category of wall-clock measurements (load, latency, host IO).
+ * Excluded from the unit tests and run by `./gradlew :monetai-sdk:perfTest`;
+ * figures are written with [PerfResults].
+ */
+interface PerformanceTests
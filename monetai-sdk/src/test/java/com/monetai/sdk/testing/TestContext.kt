@@ -0,0 +1,21 @@
+package com.monetai.sdk.testing
+
+import android.content.Context
+import android.content.ContextWrapper
+import android.content.SharedPreferences
+
+/**
+ * Context for JVM tests: in-memory preferences and a fixed package name
+ */
+class TestContext : ContextWrapper(null) {
+
+    private val preferences = HashMap<String, FakeSharedPreferences>()
+
+    override fun getSharedPreferences(name: String?, mode: Int): SharedPreferences = synchronized(preferences) {
+        preferences.getOrPut(name.orEmpty()) { FakeSharedPreferences() }
+    }
+
+    override fun getPackageName(): String = "com.monetai.sdk.test"
+
+    override fun getApplicationContext(): Context = this
+}